@@ -0,0 +1,4 @@
+#!/bin/sh
+# Roda só na PRIMEIRA inicialização do volume (docker-entrypoint-initdb.d).
+# Libera conexões de replicação para a réplica local (serviço db-replica, profile "replica" do docker-compose).
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
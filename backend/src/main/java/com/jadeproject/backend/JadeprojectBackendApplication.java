@@ -4,11 +4,17 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.security.Security;
+
 @SpringBootApplication
 @EnableScheduling
 public class JadeprojectBackendApplication {
 
 	public static void main(String[] args) {
+		//O DnsCache (probe) controla TTL e cache negativo dos nomes resolvidos.
+		//Desliga o cache interno do InetAddress para não haver duas camadas de cache com TTLs diferentes.
+		Security.setProperty("networkaddress.cache.ttl", "0");
+		Security.setProperty("networkaddress.cache.negative.ttl", "0");
 		SpringApplication.run(JadeprojectBackendApplication.class, args);
 	}
 
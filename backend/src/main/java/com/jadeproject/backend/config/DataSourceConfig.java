@@ -0,0 +1,75 @@
+package com.jadeproject.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.flyway.autoconfigure.FlywayDataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/*Dois pools de conexão em vez do pool único padrão do Spring Boot:
+*   - ESCRITA (jade-write): spring.datasource.* -> banco principal. Gravação do histórico, leases, incidentes, CRUD;
+*   - LEITURA (jade-read): jade.datasource.read.* -> réplica, se configurada (vazio = o mesmo banco principal).
+* Assim um pico de acessos ao dashboard não esgota as conexões de que o scheduler precisa para gravar, e vice-versa.
+* Cada pool tem tamanho próprio e aparece separado nas métricas (hikaricp.connections.*{pool=jade-write|jade-read}).
+*
+* Quem decide o pool é a transação: @Transactional(readOnly = true) (ex: MonitorHistoryService e os métodos de
+* leitura dos repositórios do Spring Data) vai para a leitura; o resto vai para a escrita.
+*
+* ATENÇÃO com réplica: ela anda alguns milissegundos (ou segundos) atrás do principal. Leitura que PRECISA ver o que
+* acabou de ser gravado deve rodar numa transação de escrita (ex: TransactionTemplate), como o MonitorScheduler faz
+* ao recarregar um monitor alterado.*/
+@Configuration
+public class DataSourceConfig {
+
+    //O Flyway sempre migra o banco principal (numa réplica não dá para escrever)
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(@Value("${spring.datasource.url}") String url,
+                                            @Value("${spring.datasource.username}") String username,
+                                            @Value("${spring.datasource.password}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setPoolName("jade-write");
+        return dataSource;
+    }
+
+    //Sem jade.datasource.read.url, aponta para o banco principal: só separa os pools
+    @Bean
+    @ConfigurationProperties("jade.datasource.read.hikari")
+    public HikariDataSource readDataSource(@Value("${spring.datasource.url}") String url,
+                                           @Value("${spring.datasource.username}") String username,
+                                           @Value("${spring.datasource.password}") String password,
+                                           @Value("${jade.datasource.read.url:}") String readUrl,
+                                           @Value("${jade.datasource.read.username:}") String readUsername,
+                                           @Value("${jade.datasource.read.password:}") String readPassword) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(readUrl.isBlank() ? url : readUrl);
+        dataSource.setUsername(readUsername.isBlank() ? username : readUsername);
+        dataSource.setPassword(readPassword.isBlank() ? password : readPassword);
+        dataSource.setPoolName("jade-read");
+        dataSource.setReadOnly(true); //Na réplica é obrigatório; no principal evita escrita por engano
+        return dataSource;
+    }
+
+    //O DataSource que o resto da aplicação enxerga (JPA, JdbcTemplate...)
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") DataSource writeDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        /*O proxy entrega uma conexão "de mentira" e só pede a real no primeiro comando SQL. Até lá o gerenciador de
+        * transação já chamou setReadOnly(true) (transação readOnly), e o proxy escolhe o pool de leitura.
+        * Sem transação ou em transação de escrita, vai para o pool de escrita.*/
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writeDataSource);
+        proxy.setReadOnlyDataSource(readDataSource);
+        return proxy;
+    }
+}
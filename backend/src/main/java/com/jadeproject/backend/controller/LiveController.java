@@ -0,0 +1,51 @@
+package com.jadeproject.backend.controller;
+
+import com.jadeproject.backend.live.LiveEventBus;
+import com.jadeproject.backend.model.User;
+import com.jadeproject.backend.security.UserDetailsImpl;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+@RequestMapping("/live")
+public class LiveController {
+
+    private final LiveEventBus liveEventBus;
+
+    public LiveController(LiveEventBus liveEventBus) {
+        this.liveEventBus = liveEventBus;
+    }
+
+    /*STREAM AO VIVO (Server-Sent Events) dos monitores do usuário logado
+    * URL: GET http://localhost:8080/live/stream (header Authorization: Bearer <token>)
+    * Substitui o polling de /history/recent e /incidents por monitor: uma conexão só, e o servidor empurra
+    *   event: check              -> resultado de cada verificação (MonitorHistoryResponseDTO)
+    *   event: incident-opened    -> incidente aberto (IncidentResponseDTO)
+    *   event: incident-resolved  -> incidente resolvido (IncidentResponseDTO)
+    *   event: overflow           -> N eventos perdidos (cliente lento): recarregar o estado pelas rotas REST
+    * O EventSource do navegador não manda o header Authorization: no frontend, usar um cliente SSE via fetch.*/
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        //Pega a autenticação (o usuário só recebe eventos dos próprios monitores)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof UserDetailsImpl)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuário não autenticado.");
+        }
+        User currentUser = ((UserDetailsImpl) authentication.getPrincipal()).getUser();
+
+        SseEmitter emitter = liveEventBus.subscribe(currentUser.getId());
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Limite de conexões ao vivo atingido.");
+        }
+        return emitter;
+    }
+}
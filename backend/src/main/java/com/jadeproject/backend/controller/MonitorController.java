@@ -1,12 +1,15 @@
 package com.jadeproject.backend.controller;
 
+import com.jadeproject.backend.dto.IncidentResponseDTO;
 import com.jadeproject.backend.dto.MonitorCreateDTO;
+import com.jadeproject.backend.dto.MonitorDashboardDTO;
 import com.jadeproject.backend.dto.MonitorResponseDTO;
 import com.jadeproject.backend.dto.MonitorUpdateDTO;
 import com.jadeproject.backend.model.Monitor;
 import com.jadeproject.backend.model.User;
 import com.jadeproject.backend.security.UserDetailsImpl;
 import com.jadeproject.backend.service.MonitorService;
+import com.jadeproject.backend.status.DashboardEntry;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
@@ -79,6 +82,9 @@ public class MonitorController {
         if (createDto.getIsActive() != null) {
             monitorEntity.setIsActive(createDto.getIsActive());
         }
+        if (createDto.getStorageMode() != null) {
+            monitorEntity.setStorageMode(createDto.getStorageMode());
+        }
 
         //Salva
         Monitor savedMonitor = monitorService.createMonitor(monitorEntity, userId);
@@ -106,6 +112,22 @@ public class MonitorController {
         return ResponseEntity.ok(dtos);
     }
 
+    /*2.1. DASHBOARD DE UM USUÁRIO (tudo de uma vez)
+    * URL: GET http://localhost:8080/monitors/user/{userId}/dashboard
+    * Substitui a lista de monitores + /history/recent + /incidents de CADA monitor (2N+1 requisições)
+    * por uma requisição e uma consulta: monitors + monitor_current_status + incidente aberto.
+    * O estado atual anda ~1 segundo atrás das verificações (é gravado junto com o lote do histórico).*/
+    @GetMapping("/user/{userId}/dashboard")
+    public ResponseEntity<List<MonitorDashboardDTO>> getDashboardByUser(@PathVariable Long userId) {
+        checkUserPermission(userId);
+
+        List<MonitorDashboardDTO> dtos = monitorService.getDashboard(userId).stream()
+                .map(this::toDashboardDTO)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(dtos);
+    }
+
     //3. DELETAR MONITOR (não precisa de DTO pois não retorna corpo)
     //URL: DELETE http://localhost:8080/monitors/{id}
     @DeleteMapping("/{id}")
@@ -161,6 +183,7 @@ public class MonitorController {
         dto.setUrl(monitor.getUrl());
         dto.setIntervalSeconds(monitor.getIntervalSeconds());
         dto.setIsActive(monitor.getIsActive());
+        dto.setStorageMode(monitor.getStorageMode());
         dto.setLastChecked(monitor.getLastChecked());
         dto.setCreatedAt(monitor.getCreatedAt());
 
@@ -171,4 +194,30 @@ public class MonitorController {
 
         return dto;
     }
+
+    private MonitorDashboardDTO toDashboardDTO(DashboardEntry entry) {
+        MonitorDashboardDTO dto = new MonitorDashboardDTO();
+        dto.setId(entry.monitorId());
+        dto.setName(entry.name());
+        dto.setUrl(entry.url());
+        dto.setIntervalSeconds(entry.intervalSeconds());
+        dto.setIsActive(entry.isActive());
+        dto.setLastCheckedAt(entry.lastCheckedAt());
+        dto.setStatusCode(entry.statusCode());
+        dto.setLatency(entry.latencyMs());
+        dto.setIsSuccessful(entry.isSuccessful());
+
+        if (entry.incidentId() != null) {
+            IncidentResponseDTO incident = new IncidentResponseDTO();
+            incident.setId(entry.incidentId());
+            incident.setTitle(entry.incidentTitle());
+            incident.setSeverity(entry.incidentSeverity());
+            incident.setDescription(entry.incidentDescription());
+            incident.setStatus("OPEN");
+            incident.setCreatedAt(entry.incidentCreatedAt());
+            incident.setMonitorId(entry.monitorId());
+            dto.setOpenIncident(incident);
+        }
+        return dto;
+    }
 }
@@ -1,23 +1,41 @@
 package com.jadeproject.backend.controller;
 
 import com.jadeproject.backend.dto.MonitorHistoryResponseDTO;
+import com.jadeproject.backend.dto.MonitorHistorySliceDTO;
+import com.jadeproject.backend.dto.MonitorRollupResponseDTO;
+import com.jadeproject.backend.dto.MonitorSummaryResponseDTO;
+import com.jadeproject.backend.export.HistoryExportFormat;
+import com.jadeproject.backend.export.HistoryExportService;
 import com.jadeproject.backend.model.Monitor;
 import com.jadeproject.backend.model.MonitorHistory;
 import com.jadeproject.backend.model.User;
+import com.jadeproject.backend.rollup.RollupBucket;
+import com.jadeproject.backend.rollup.RollupGranularity;
 import com.jadeproject.backend.security.UserDetailsImpl;
+import com.jadeproject.backend.service.HistoryCursor;
 import com.jadeproject.backend.service.MonitorHistoryService;
+import com.jadeproject.backend.service.MonitorRollupService;
 import com.jadeproject.backend.service.MonitorService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,15 +46,21 @@ public class MonitorHistoryController {
 
     private final MonitorHistoryService historyService;
     private final MonitorService monitorService; //Nova injeção
+    private final MonitorRollupService rollupService;
+    private final HistoryExportService exportService;
 
-    public MonitorHistoryController(MonitorHistoryService historyService, MonitorService monitorService) {
+    public MonitorHistoryController(MonitorHistoryService historyService, MonitorService monitorService,
+                                    MonitorRollupService rollupService, HistoryExportService exportService) {
         this.historyService = historyService;
         this.monitorService = monitorService;
+        this.rollupService = rollupService;
+        this.exportService = exportService;
     }
 
 
     //--- Método de segurança ---
-    private void checkMonitorOwner(Long monitorId) {
+    //Devolve o monitor já carregado, para quem precisar de mais algum dado dele
+    private Monitor checkMonitorOwner(Long monitorId) {
         //1. Busca o monitor
         Monitor monitor = monitorService.findById(monitorId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Monitor não encontrado"));
@@ -68,6 +92,21 @@ public class MonitorHistoryController {
         if (!isAdmin && !currentUser.getId().equals(ownerId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Você não tem permissão para ver este recurso.");
         }
+        return monitor;
+    }
+
+    //Mesma regra do MonitorController: só o próprio usuário ou um admin
+    private void checkUserPermission(Long targetUserId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof UserDetailsImpl)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuário não autenticado.");
+        }
+
+        User currentUser = ((UserDetailsImpl) authentication.getPrincipal()).getUser();
+        boolean isAdmin = "ROLE_ADMIN".equals(currentUser.getRole());
+        if (!isAdmin && !currentUser.getId().equals(targetUserId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Você não tem permissão para acessar dados de outro usuário.");
+        }
     }
 
     //1. OBTER OS 10 ÚLTIMOS LOGS (dashboard rápido)
@@ -114,14 +153,204 @@ public class MonitorHistoryController {
         return ResponseEntity.ok(dtoPage);
     }
 
+    /*ROTA PAGINADA POR CURSOR (para páginas profundas e rolagem infinita)
+    * URL ex: GET http://localhost:8080/history/monitor/17/cursor?size=20
+    *         GET http://localhost:8080/history/monitor/17/cursor?cursor=<nextCursor da resposta anterior>&size=20
+    * Em vez de "pule X linhas" (OFFSET), diz "continue depois desta linha" (chave checked_at + id):
+    *   SELECT * FROM monitor_history WHERE monitor_id = 17 AND (checked_at, id) < (...) ORDER BY checked_at DESC, id DESC LIMIT 21;
+    * Não faz o COUNT(*) do histórico inteiro: a resposta só diz se existe próxima página (hasNext/nextCursor).*/
+    @GetMapping("/monitor/{monitorId}/cursor")
+    public ResponseEntity<MonitorHistorySliceDTO> getHistoryByCursor(
+            @PathVariable Long monitorId,
+            @RequestParam(required = false) String cursor, //Ausente = primeira página
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        checkMonitorOwner(monitorId); //Segurança
+
+        size = Math.max(1, Math.min(size, 100)); //Mesmo limite da rota paginada
+        HistoryCursor position;
+        try {
+            position = (cursor == null || cursor.isBlank()) ? null : HistoryCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor inválido.");
+        }
+
+        Slice<MonitorHistory> slice = historyService.getLogsAfterCursor(monitorId, position, size);
+
+        MonitorHistorySliceDTO dto = new MonitorHistorySliceDTO();
+        dto.setContent(slice.getContent().stream()
+                .map(this::toResponseDTO)
+                .collect(Collectors.toList()));
+        dto.setHasNext(slice.hasNext());
+        if (slice.hasNext()) {
+            MonitorHistory last = slice.getContent().getLast();
+            dto.setNextCursor(new HistoryCursor(last.getCheckedAt(), last.getId()).encode());
+        }
+        return ResponseEntity.ok(dto);
+    }
+
+    /*SÉRIE AGREGADA (gráficos e uptime)
+    * URL ex: GET http://localhost:8080/history/monitor/17/rollup?from=2025-01-01T00:00:00Z&to=2025-04-01T00:00:00Z&points=24
+    * Lê os rollups (1 minuto, 1 hora ou 1 dia) em vez das verificações brutas. A granularidade é a mais grossa
+    * que ainda entrega pelo menos 'points' pontos. Padrão: últimas 24 horas.
+    * Os rollups andam ~1 minuto atrás do presente (só baldes completos são agregados).*/
+    @GetMapping("/monitor/{monitorId}/rollup")
+    public ResponseEntity<List<MonitorRollupResponseDTO>> getHistoryRollup(
+            @PathVariable Long monitorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(defaultValue = "24") int points
+    ) {
+        Monitor monitor = checkMonitorOwner(monitorId); //Segurança
+
+        Instant end = (to != null) ? to.toInstant() : Instant.now();
+        Instant start = (from != null) ? from.toInstant() : end.minus(Duration.ofHours(24));
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' deve ser anterior a 'to'.");
+        }
+
+        RollupGranularity granularity = rollupService.chooseGranularity(start, end, Math.max(points, 1),
+                "STATE_CHANGE".equals(monitor.getStorageMode()));
+        List<MonitorRollupResponseDTO> dtos = rollupService.getSeries(monitorId, granularity, start, end).stream()
+                .map(bucket -> toRollupDTO(bucket, granularity))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(dtos);
+    }
+
+    /*RESUMO DO PERÍODO (cards de uptime/latência do dashboard)
+    * URL ex: GET http://localhost:8080/history/monitor/17/summary?from=2025-01-01T00:00:00Z&to=2025-04-01T00:00:00Z
+    * Devolve só os números (uptime %, verificações, falhas, latência mín/média/máx e p50/p95/p99), calculados no servidor
+    * a partir dos rollups de 1 dia/1 hora mais as verificações brutas das pontas. Padrão: últimas 24 horas.*/
+    @GetMapping("/monitor/{monitorId}/summary")
+    public ResponseEntity<MonitorSummaryResponseDTO> getHistorySummary(
+            @PathVariable Long monitorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to
+    ) {
+        checkMonitorOwner(monitorId); //Segurança
+
+        Instant end = (to != null) ? to.toInstant() : Instant.now();
+        Instant start = (from != null) ? from.toInstant() : end.minus(Duration.ofHours(24));
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' deve ser anterior a 'to'.");
+        }
+
+        RollupBucket total = rollupService.summarize(monitorId, start, end);
+
+        MonitorSummaryResponseDTO dto = new MonitorSummaryResponseDTO();
+        dto.setMonitorId(monitorId);
+        dto.setFrom(start.atOffset(ZoneOffset.UTC));
+        dto.setTo(end.atOffset(ZoneOffset.UTC));
+        dto.setCheckCount(total.getCheckCount());
+        dto.setSuccessCount(total.getSuccessCount());
+        dto.setFailureCount(total.getCheckCount() - total.getSuccessCount());
+        if (total.getCheckCount() > 0) {
+            dto.setUptimePercent(100.0 * total.getSuccessCount() / total.getCheckCount());
+        }
+        dto.setLatencyMin(total.getLatencyMin());
+        dto.setLatencyAvg(total.getLatencyAvg());
+        dto.setLatencyMax(total.getLatencyMax());
+        dto.setLatencyP50(total.latencyQuantile(0.50));
+        dto.setLatencyP95(total.latencyQuantile(0.95));
+        dto.setLatencyP99(total.latencyQuantile(0.99));
+        return ResponseEntity.ok(dto);
+    }
+
+    /*EXPORTAÇÃO EM MASSA (auditoria, planilhas, data lake)
+    * URL ex: GET http://localhost:8080/history/monitor/17/export?format=csv&from=2025-01-01T00:00:00Z&to=2025-07-01T00:00:00Z
+    * O arquivo inteiro numa requisição só, escrito enquanto é lido do banco (StreamingResponseBody):
+    * sem limite de 100 por página, sem COUNT e com memória constante. Formatos: ndjson (padrão) ou csv.
+    * Sem 'from' exporta desde o início; sem 'to', até agora.*/
+    @GetMapping("/monitor/{monitorId}/export")
+    public ResponseEntity<StreamingResponseBody> exportMonitorHistory(
+            @PathVariable Long monitorId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to
+    ) {
+        checkMonitorOwner(monitorId); //Segurança
+        return export(List.of(monitorId), "monitor-" + monitorId, format, from, to);
+    }
+
+    //Mesma exportação, para todos os monitores do usuário (um monitor depois do outro, em ordem de id)
+    //URL ex: GET http://localhost:8080/history/user/3/export?format=ndjson&from=2025-01-01T00:00:00Z
+    @GetMapping("/user/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportUserHistory(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to
+    ) {
+        checkUserPermission(userId); //Segurança
+
+        List<Long> monitorIds = monitorService.findAllByUserId(userId).stream()
+                .map(Monitor::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        return export(monitorIds, "user-" + userId, format, from, to);
+    }
+
+    //Valida tudo ANTES de começar a escrever: depois do primeiro byte não dá mais para devolver um 400
+    private ResponseEntity<StreamingResponseBody> export(List<Long> monitorIds, String fileName, String format,
+                                                         OffsetDateTime from, OffsetDateTime to) {
+        HistoryExportFormat exportFormat;
+        try {
+            exportFormat = HistoryExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato inválido. Use 'ndjson' ou 'csv'.");
+        }
+        Instant end = (to != null) ? to.toInstant() : Instant.now();
+        Instant start = (from != null) ? from.toInstant() : Instant.EPOCH;
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' deve ser anterior a 'to'.");
+        }
+
+        StreamingResponseBody body = out -> exportService.export(monitorIds, start, end, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"history-" + fileName + "." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
+    private MonitorRollupResponseDTO toRollupDTO(RollupBucket bucket, RollupGranularity granularity) {
+        MonitorRollupResponseDTO dto = new MonitorRollupResponseDTO();
+        dto.setBucketStart(bucket.getBucketStart().atOffset(ZoneOffset.UTC));
+        dto.setGranularity(granularity.name());
+        dto.setCheckCount(bucket.getCheckCount());
+        dto.setSuccessCount(bucket.getSuccessCount());
+        if (bucket.getCheckCount() > 0) {
+            dto.setUptimePercent(100.0 * bucket.getSuccessCount() / bucket.getCheckCount());
+        }
+        dto.setLatencyMin(bucket.getLatencyMin());
+        dto.setLatencyAvg(bucket.getLatencyAvg());
+        dto.setLatencyMax(bucket.getLatencyMax());
+        dto.setLatencyP50(bucket.latencyQuantile(0.50));
+        dto.setLatencyP95(bucket.latencyQuantile(0.95));
+        dto.setLatencyP99(bucket.latencyQuantile(0.99));
+        return dto;
+    }
+
     //Método auxiliar de conversão (Entity -> DTO)
     private MonitorHistoryResponseDTO toResponseDTO(MonitorHistory history) {
         MonitorHistoryResponseDTO dto = new MonitorHistoryResponseDTO();
         dto.setId(history.getId());
         dto.setStatusCode(history.getStatusCode());
         dto.setLatency(history.getLatency());
+        dto.setDnsMs(history.getDnsMs());
+        dto.setConnectMs(history.getConnectMs());
+        dto.setTlsMs(history.getTlsMs());
+        dto.setRequestMs(history.getRequestMs());
         dto.setIsSuccessful(history.getIsSuccessful());
         dto.setCheckedAt(history.getCheckedAt());
+        if (history.getRepeats() != null) {
+            dto.setRepeatCount(history.getRepeats().checkCount());
+            dto.setRepeatedUntil(history.getRepeats().endedAt());
+            dto.setRepeatLatencyMin(history.getRepeats().latencyMin());
+            dto.setRepeatLatencyAvg(history.getRepeats().latencyAvg());
+            dto.setRepeatLatencyMax(history.getRepeats().latencyMax());
+        }
 
         //Null check de segurança, embora o banco exija monitor
         if (history.getMonitor() != null) {
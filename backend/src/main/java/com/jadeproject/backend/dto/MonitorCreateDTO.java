@@ -21,4 +21,8 @@ public class MonitorCreateDTO {
     private Integer intervalSeconds;
 
     private Boolean isActive; //Opcional, o PrePersist da Entity garante true se vier null
+
+    //Opcional (padrão FULL). STATE_CHANGE grava linha completa só quando o status muda
+    @Pattern(regexp = "FULL|STATE_CHANGE", message = "O modo de armazenamento deve ser FULL ou STATE_CHANGE")
+    private String storageMode;
 }
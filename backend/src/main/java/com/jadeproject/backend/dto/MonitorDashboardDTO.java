@@ -0,0 +1,23 @@
+package com.jadeproject.backend.dto;
+
+import lombok.Data;
+import java.time.OffsetDateTime;
+
+//Um card do dashboard: o monitor, a última verificação e o incidente aberto, tudo numa resposta só
+@Data
+public class MonitorDashboardDTO {
+    private Long id;
+    private String name;
+    private String url;
+    private Integer intervalSeconds;
+    private Boolean isActive;
+
+    //Última verificação (todos null se o monitor ainda não foi verificado)
+    private OffsetDateTime lastCheckedAt;
+    private Integer statusCode;
+    private Integer latency;
+    private Boolean isSuccessful;
+
+    //null se não há incidente aberto
+    private IncidentResponseDTO openIncident;
+}
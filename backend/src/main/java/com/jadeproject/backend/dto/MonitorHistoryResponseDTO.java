@@ -9,9 +9,22 @@ public class MonitorHistoryResponseDTO {
     private Long id;
     private Integer statusCode;
     private Integer latency;
+    //Quebra da latência por fase (null = não medida nesta verificação)
+    private Integer dnsMs;
+    private Integer connectMs;
+    private Integer tlsMs;
+    private Integer requestMs; //Envio até os headers da resposta (inclui conexão nova, se houve: ver ProbeTimings)
     private Boolean isSuccessful;
     private OffsetDateTime checkedAt;
 
+    //Modo STATE_CHANGE: verificações seguintes com o mesmo status, guardadas só como resumo.
+    //Esta linha vale de checkedAt até repeatedUntil (null = sem repetições resumidas)
+    private Integer repeatCount;
+    private OffsetDateTime repeatedUntil;
+    private Integer repeatLatencyMin;
+    private Double repeatLatencyAvg;
+    private Integer repeatLatencyMax;
+
     //Opcional: mandar o ID do monitor de volta é útil em listas mistas
     private Long monitorId;
 }
@@ -0,0 +1,15 @@
+package com.jadeproject.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+//Página do histórico paginado por cursor. Sem total: para isso seria preciso contar o histórico inteiro
+@Data
+public class MonitorHistorySliceDTO {
+
+    private List<MonitorHistoryResponseDTO> content;
+    private boolean hasNext;
+    //Mandar de volta em ?cursor= para buscar a próxima página (null = acabou)
+    private String nextCursor;
+}
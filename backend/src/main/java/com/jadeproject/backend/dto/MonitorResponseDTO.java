@@ -10,6 +10,7 @@ public class MonitorResponseDTO {
     private String url;
     private Integer intervalSeconds;
     private Boolean isActive;
+    private String storageMode;
     private OffsetDateTime lastChecked;
     private OffsetDateTime createdAt;
 
@@ -0,0 +1,24 @@
+package com.jadeproject.backend.dto;
+
+import lombok.Data;
+import java.time.OffsetDateTime;
+
+//Um ponto da série agregada do histórico (um balde de 1 minuto, 1 hora ou 1 dia)
+@Data
+public class MonitorRollupResponseDTO {
+
+    private OffsetDateTime bucketStart;
+    private String granularity; //MINUTE, HOUR ou DAY
+
+    private Integer checkCount;
+    private Integer successCount;
+    private Double uptimePercent;
+
+    //Latência só das verificações que tiveram resposta HTTP. Percentis estimados (erro relativo de ~2%)
+    private Integer latencyMin;
+    private Double latencyAvg;
+    private Integer latencyMax;
+    private Integer latencyP50;
+    private Integer latencyP95;
+    private Integer latencyP99;
+}
@@ -0,0 +1,26 @@
+package com.jadeproject.backend.dto;
+
+import lombok.Data;
+import java.time.OffsetDateTime;
+
+//Resumo de um período do histórico: um número só para cada métrica, em vez da lista de verificações
+@Data
+public class MonitorSummaryResponseDTO {
+
+    private Long monitorId;
+    private OffsetDateTime from;
+    private OffsetDateTime to;
+
+    private Integer checkCount;
+    private Integer successCount;
+    private Integer failureCount;
+    private Double uptimePercent; //null se não houve verificação no período
+
+    //Latência só das verificações que tiveram resposta HTTP. Percentis estimados (erro relativo de ~2%)
+    private Integer latencyMin;
+    private Double latencyAvg;
+    private Integer latencyMax;
+    private Integer latencyP50;
+    private Integer latencyP95;
+    private Integer latencyP99;
+}
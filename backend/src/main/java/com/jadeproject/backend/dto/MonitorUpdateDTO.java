@@ -2,6 +2,7 @@ package com.jadeproject.backend.dto;
 
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import org.hibernate.validator.constraints.URL;
@@ -20,4 +21,7 @@ public class MonitorUpdateDTO {
     private Integer intervalSeconds;
 
     private Boolean isActive;
+
+    @Pattern(regexp = "FULL|STATE_CHANGE", message = "O modo de armazenamento deve ser FULL ou STATE_CHANGE")
+    private String storageMode;
 }
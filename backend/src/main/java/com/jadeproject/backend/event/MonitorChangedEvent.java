@@ -0,0 +1,12 @@
+package com.jadeproject.backend.event;
+
+//Publicado pelo MonitorService sempre que um monitor é criado, alterado ou removido.
+//Quem mantém estado em memória sobre os monitores (ex: a agenda do MonitorScheduler) escuta esse evento.
+public record MonitorChangedEvent(Long monitorId, ChangeType type) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,108 @@
+package com.jadeproject.backend.export;
+
+import com.jadeproject.backend.model.MonitorHistory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/*Formatos da exportação do histórico. Cada verificação vira UMA linha de texto, escrita assim que sai do banco:
+*   - NDJSON: um objeto JSON por linha (fácil de processar em streaming, ex: jq, pandas com lines=True);
+*   - CSV: cabeçalho + uma linha por verificação (planilhas).
+* Só há números, booleanos e datas: nada precisa de escape, então a linha é montada à mão em vez de passar pelo Jackson.
+* Modo STATE_CHANGE: repeatCount/repeatedUntil dizem quantas verificações iguais vieram depois da linha e até quando
+* (mesmo significado do MonitorHistoryResponseDTO). Nulos/vazios = sem repetições resumidas.*/
+public enum HistoryExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        void writeHeader(Writer out) {
+        }
+
+        @Override
+        void writeRow(Writer out, long monitorId, MonitorHistory row) throws IOException {
+            out.append("{\"id\":").append(String.valueOf(row.getId()))
+                    .append(",\"monitorId\":").append(String.valueOf(monitorId))
+                    .append(",\"checkedAt\":\"").append(timestamp(row)).append('"')
+                    .append(",\"statusCode\":").append(String.valueOf(row.getStatusCode()))
+                    .append(",\"latency\":").append(String.valueOf(row.getLatency()))
+                    .append(",\"dnsMs\":").append(String.valueOf(row.getDnsMs()))
+                    .append(",\"connectMs\":").append(String.valueOf(row.getConnectMs()))
+                    .append(",\"tlsMs\":").append(String.valueOf(row.getTlsMs()))
+                    .append(",\"requestMs\":").append(String.valueOf(row.getRequestMs()))
+                    .append(",\"isSuccessful\":").append(String.valueOf(row.getIsSuccessful()))
+                    .append(",\"repeatCount\":").append(String.valueOf(repeatCount(row)))
+                    .append(",\"repeatedUntil\":").append(jsonString(repeatedUntil(row)))
+                    .append("}\n");
+        }
+    },
+
+    CSV("text/csv", "csv") {
+        @Override
+        void writeHeader(Writer out) throws IOException {
+            out.append("id,monitorId,checkedAt,statusCode,latency,dnsMs,connectMs,tlsMs,requestMs,isSuccessful,repeatCount,repeatedUntil\n");
+        }
+
+        @Override
+        void writeRow(Writer out, long monitorId, MonitorHistory row) throws IOException {
+            out.append(String.valueOf(row.getId())).append(',')
+                    .append(String.valueOf(monitorId)).append(',')
+                    .append(timestamp(row)).append(',')
+                    .append(cell(row.getStatusCode())).append(',')
+                    .append(cell(row.getLatency())).append(',')
+                    .append(cell(row.getDnsMs())).append(',')
+                    .append(cell(row.getConnectMs())).append(',')
+                    .append(cell(row.getTlsMs())).append(',')
+                    .append(cell(row.getRequestMs())).append(',')
+                    .append(cell(row.getIsSuccessful())).append(',')
+                    .append(cell(repeatCount(row))).append(',')
+                    .append(cell(repeatedUntil(row))).append('\n');
+        }
+    };
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private final String contentType;
+    private final String extension;
+
+    HistoryExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    abstract void writeHeader(Writer out) throws IOException;
+
+    abstract void writeRow(Writer out, long monitorId, MonitorHistory row) throws IOException;
+
+    //Sempre em UTC, como o banco guarda
+    private static String timestamp(MonitorHistory row) {
+        return TIMESTAMP.format(row.getCheckedAt().withOffsetSameInstant(ZoneOffset.UTC));
+    }
+
+    private static Integer repeatCount(MonitorHistory row) {
+        return row.getRepeats() == null ? null : row.getRepeats().checkCount();
+    }
+
+    private static String repeatedUntil(MonitorHistory row) {
+        return row.getRepeats() == null ? null
+                : TIMESTAMP.format(row.getRepeats().endedAt().withOffsetSameInstant(ZoneOffset.UTC));
+    }
+
+    private static String jsonString(String value) {
+        return value == null ? "null" : '"' + value + '"';
+    }
+
+    //No CSV, nulo vira célula vazia (no JSON vira null)
+    private static String cell(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
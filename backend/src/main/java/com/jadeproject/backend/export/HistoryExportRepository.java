@@ -0,0 +1,67 @@
+package com.jadeproject.backend.export;
+
+import com.jadeproject.backend.model.MonitorHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*Leitura da camada QUENTE (monitor_history) para a exportação.
+* JdbcTemplate com fetchSize em vez do repositório JPA: dentro de uma transação o driver do PostgreSQL abre um
+* cursor no servidor e traz STREAM_FETCH_SIZE linhas por vez. Nada de Page nem de entidades gerenciadas:
+* a memória fica constante, seja uma hora ou seis meses de histórico.*/
+@Repository
+public class HistoryExportRepository {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public HistoryExportRepository(DataSource dataSource) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    //Dias (UTC) em que o monitor tem verificações na camada quente em [from, to). Só esses dias são percorridos:
+    //um monitor pausado por meses, ou uma exportação sem 'from', não vira uma consulta por dia vazio
+    public List<LocalDate> findHotDays(long monitorId, Instant from, Instant to) {
+        return streamingJdbcTemplate.query("""
+                        SELECT DISTINCT (checked_at AT TIME ZONE 'UTC')::date AS day FROM monitor_history
+                        WHERE monitor_id = ? AND checked_at >= ? AND checked_at < ?
+                        ORDER BY day
+                        """,
+                (rs, rowNum) -> rs.getDate("day").toLocalDate(),
+                monitorId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //Verificações de UM monitor em [from, to), da mais antiga para a mais nova. O objeto é reaproveitado a cada linha
+    public void forEachRow(long monitorId, Instant from, Instant to, Consumer<MonitorHistory> consumer) {
+        MonitorHistory row = new MonitorHistory();
+        streamingJdbcTemplate.query("""
+                        SELECT id, checked_at, status_code, latency_ms, dns_ms, connect_ms, tls_ms, request_ms, is_successful
+                        FROM monitor_history
+                        WHERE monitor_id = ? AND checked_at >= ? AND checked_at < ?
+                        ORDER BY checked_at, id
+                        """,
+                (RowCallbackHandler) rs -> {
+                    row.setId(rs.getLong("id"));
+                    row.setCheckedAt(rs.getTimestamp("checked_at").toInstant().atOffset(ZoneOffset.UTC));
+                    row.setStatusCode((Integer) rs.getObject("status_code"));
+                    row.setLatency((Integer) rs.getObject("latency_ms"));
+                    row.setDnsMs((Integer) rs.getObject("dns_ms"));
+                    row.setConnectMs((Integer) rs.getObject("connect_ms"));
+                    row.setTlsMs((Integer) rs.getObject("tls_ms"));
+                    row.setRequestMs((Integer) rs.getObject("request_ms"));
+                    row.setIsSuccessful((Boolean) rs.getObject("is_successful"));
+                    consumer.accept(row);
+                },
+                monitorId, Timestamp.from(from), Timestamp.from(to));
+    }
+}
@@ -0,0 +1,150 @@
+package com.jadeproject.backend.export;
+
+import com.jadeproject.backend.model.Monitor;
+import com.jadeproject.backend.model.MonitorHistory;
+import com.jadeproject.backend.run.HistoryRunRepository;
+import com.jadeproject.backend.run.HistoryRunSummary;
+import com.jadeproject.backend.segment.HistorySegmentCodec;
+import com.jadeproject.backend.segment.HistorySegmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/*Exportação do histórico em massa (NDJSON ou CSV), escrita direto na resposta HTTP enquanto é lida do banco.
+* Ordem: monitor por monitor (na ordem recebida) e, dentro de cada um, dia por dia (UTC), da verificação mais antiga
+* para a mais nova. Só os dias COM dados são percorridos (dias com segmento + dias distintos da camada quente), então
+* meses sem verificações não custam nada. Cada dia está numa camada só:
+*   - FRIA: o segmento do dia (só um segmento descomprimido em memória);
+*   - QUENTE: cursor no servidor sobre a partição do dia em monitor_history (HistoryExportRepository).
+*
+* Sem trava nem transação longa: cada dia é lido na sua própria transação curta (readOnly, pool de leitura).
+* Se o HistorySegmentCompactor transformar a partição em segmento no meio da exportação, a leitura quente daquele
+* dia volta vazia e o dia é relido do segmento (ele é gravado na mesma transação do DROP). Funciona igual numa réplica.
+*
+* Modo STATE_CHANGE: cada linha sai com repeatCount/repeatedUntil (os runs que vieram depois dela), igual à
+* listagem paginada. Um estado que começou antes de 'from' não tem linha no período, então os runs dele ficam de fora.*/
+@Slf4j
+@Service
+public class HistoryExportService {
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final HistoryExportRepository exportRepository;
+    private final HistorySegmentRepository segmentRepository;
+    private final HistoryRunRepository runRepository;
+    private final TransactionTemplate dayTransaction;
+
+    public HistoryExportService(HistoryExportRepository exportRepository,
+                                HistorySegmentRepository segmentRepository,
+                                HistoryRunRepository runRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.exportRepository = exportRepository;
+        this.segmentRepository = segmentRepository;
+        this.runRepository = runRepository;
+        this.dayTransaction = new TransactionTemplate(transactionManager);
+        this.dayTransaction.setReadOnly(true);
+    }
+
+    //Escreve as verificações de [from, to) dos monitores em 'out'. Roda na thread da resposta (StreamingResponseBody)
+    public void export(List<Long> monitorIds, Instant from, Instant to, HistoryExportFormat format,
+                       OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+        long started = System.nanoTime();
+        long rows = 0;
+        try {
+            format.writeHeader(writer);
+            for (Long monitorId : monitorIds) {
+                rows += exportMonitor(monitorId, from, to, format, writer);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); //Normalmente o cliente fechou a conexão no meio do download
+        }
+        writer.flush();
+        log.info("Exportação do histórico: {} monitor(es), {} linha(s) em {} ms",
+                monitorIds.size(), rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long exportMonitor(long monitorId, Instant from, Instant to, HistoryExportFormat format, Writer writer) {
+        LocalDate fromDay = from.atOffset(ZoneOffset.UTC).toLocalDate();
+        LocalDate lastDay = to.minusNanos(1).atOffset(ZoneOffset.UTC).toLocalDate();
+
+        //Dias com dados nas duas camadas. A camada quente é consultada ANTES dos segmentos: um dia compactado entre
+        //as duas consultas aparece nas duas (e o exportDay lê do segmento), nunca em nenhuma
+        List<LocalDate> hotDays = exportRepository.findHotDays(monitorId, from, to);
+        Set<LocalDate> segmentDays = new HashSet<>(segmentRepository.findSegmentDays(monitorId, fromDay, lastDay));
+        SortedSet<LocalDate> days = new TreeSet<>(hotDays);
+        days.addAll(segmentDays);
+
+        long rows = 0;
+        for (LocalDate day : days) {
+            Instant dayStart = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant dayFrom = dayStart.isBefore(from) ? from : dayStart;
+            Instant dayEnd = day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant dayTo = dayEnd.isAfter(to) ? to : dayEnd;
+            boolean segmented = segmentDays.contains(day);
+            LocalDate currentDay = day;
+            rows += dayTransaction.execute(status ->
+                    exportDay(monitorId, currentDay, dayFrom, dayTo, segmented, format, writer));
+        }
+        return rows;
+    }
+
+    private long exportDay(long monitorId, LocalDate day, Instant from, Instant to, boolean segmented,
+                           HistoryExportFormat format, Writer writer) {
+        Map<Instant, HistoryRunSummary> repeats = runRepository.findSummaries(monitorId, from, to);
+
+        //1. Camada quente (se o dia ainda não virou segmento quando a exportação começou)
+        if (!segmented) {
+            long[] rows = {0};
+            exportRepository.forEachRow(monitorId, from, to, row -> {
+                row.setRepeats(repeats.get(row.getCheckedAt().toInstant()));
+                write(format, writer, monitorId, row);
+                rows[0]++;
+            });
+            //Vazio: ou o dia não tem verificações, ou a partição foi compactada depois do início. Confere o segmento
+            if (rows[0] > 0 || segmentRepository.findSegmentDays(monitorId, day, day).isEmpty()) {
+                return rows[0];
+            }
+        }
+
+        //2. Camada fria
+        long rows = 0;
+        Monitor monitorRef = new Monitor();
+        monitorRef.setId(monitorId);
+        for (MonitorHistory row : HistorySegmentCodec.decode(segmentRepository.findData(monitorId, day), monitorRef)) {
+            Instant checkedAt = row.getCheckedAt().toInstant();
+            if (!checkedAt.isBefore(from) && checkedAt.isBefore(to)) {
+                row.setRepeats(repeats.get(checkedAt));
+                write(format, writer, monitorId, row);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static void write(HistoryExportFormat format, Writer writer, long monitorId, MonitorHistory row) {
+        try {
+            format.writeRow(writer, monitorId, row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
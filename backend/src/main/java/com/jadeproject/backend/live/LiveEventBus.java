@@ -0,0 +1,176 @@
+package com.jadeproject.backend.live;
+
+import com.jadeproject.backend.dto.IncidentResponseDTO;
+import com.jadeproject.backend.dto.MonitorHistoryResponseDTO;
+import com.jadeproject.backend.model.Incident;
+import com.jadeproject.backend.model.Monitor;
+import com.jadeproject.backend.probe.ProbeResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*Barramento de eventos AO VIVO (em memória, dentro do processo): leva para as conexões SSE de cada usuário
+* o que o scheduler acabou de produzir para os monitores dele:
+*   - "check": resultado de uma verificação (mesmo formato do /history/recent);
+*   - "incident-opened" / "incident-resolved": incidente aberto ou fechado (mesmo formato do /incidents).
+* Em vez de o frontend consultar cada monitor a cada X segundos, ele abre UMA conexão e recebe tudo.
+*
+* Publicar é barato e nunca bloqueia o scheduler: usuário sem conexão aberta custa uma consulta no mapa;
+* com conexão, o evento entra na fila limitada de cada conexão (ver LiveSubscriber).
+*
+* Modo cluster: cada nó só enxerga as verificações que ele mesmo fez. Um cliente conectado num nó
+* recebe só parte dos eventos (o resto continua disponível pelas rotas REST).*/
+@Component
+public class LiveEventBus {
+
+    private final int bufferSize;
+    private final Duration heartbeat;
+    private final long emitterTimeoutMs;
+    private final int maxStreamsPerUser;
+    private final Map<Long, List<LiveSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter droppedCounter;
+
+    //Uma virtual thread por conexão: fica parada esperando a fila, sem segurar thread do SO
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LiveEventBus(@Value("${jade.live.buffer-size:256}") int bufferSize,
+                        @Value("${jade.live.heartbeat-seconds:25}") long heartbeatSeconds,
+                        @Value("${jade.live.timeout-minutes:30}") long timeoutMinutes,
+                        @Value("${jade.live.max-streams-per-user:5}") int maxStreamsPerUser,
+                        MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        this.emitterTimeoutMs = Duration.ofMinutes(timeoutMinutes).toMillis();
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        Gauge.builder("jade.live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Conexões SSE abertas em /live/stream")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("jade.live.dropped")
+                .description("Eventos ao vivo descartados porque a fila da conexão estava cheia")
+                .register(meterRegistry);
+    }
+
+    //Nova conexão do usuário. Retorna null se ele já tiver max-streams-per-user conexões abertas
+    //A lista de cada usuário só muda dentro do compute/computeIfPresent do mapa (atômicos por chave): uma inscrição
+    //nunca cai numa lista que o unsubscribe acabou de tirar do mapa
+    public SseEmitter subscribe(Long userId) {
+        LiveSubscriber[] created = {null};
+        subscribers.compute(userId, (id, list) -> {
+            List<LiveSubscriber> current = list != null ? list : new CopyOnWriteArrayList<>();
+            if (current.size() < maxStreamsPerUser) {
+                //Depois do timeout o cliente reconecta sozinho (EventSource); evita conexões esquecidas para sempre
+                created[0] = new LiveSubscriber(userId, new SseEmitter(emitterTimeoutMs), bufferSize, heartbeat,
+                        this::unsubscribe);
+                current.add(created[0]);
+                subscriberCount.incrementAndGet();
+            }
+            return current.isEmpty() ? null : current;
+        });
+        LiveSubscriber subscriber = created[0];
+        if (subscriber == null) {
+            return null;
+        }
+
+        SseEmitter emitter = subscriber.getEmitter();
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        //Primeiro evento: confirma a inscrição (e faz os proxies liberarem os cabeçalhos)
+        subscriber.offer(SseEmitter.event().name("subscribed").data(userId));
+        senders.execute(subscriber);
+        return emitter;
+    }
+
+    //Última conexão do usuário fechada: a entrada sai do mapa (devolver null no computeIfPresent remove a chave)
+    private void unsubscribe(LiveSubscriber subscriber) {
+        boolean[] removed = {false};
+        subscribers.computeIfPresent(subscriber.getUserId(), (id, list) -> {
+            removed[0] = list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+        if (removed[0]) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    //Resultado de uma verificação (chamado pelo MonitorScheduler logo depois de enfileirar o histórico)
+    public void publishCheck(Monitor monitor, ProbeResult result, OffsetDateTime checkedAt) {
+        List<LiveSubscriber> list = subscribersOf(monitor);
+        if (list == null) {
+            return; //Caso comum: dono do monitor sem conexão aberta, nem monta o DTO
+        }
+        MonitorHistoryResponseDTO dto = new MonitorHistoryResponseDTO();
+        dto.setMonitorId(monitor.getId());
+        dto.setStatusCode(result.statusCode());
+        dto.setLatency((int) result.responseTimeMs());
+        if (result.timings() != null) {
+            dto.setDnsMs(result.timings().dnsMs());
+            dto.setConnectMs(result.timings().connectMs());
+            dto.setTlsMs(result.timings().tlsMs());
+            dto.setRequestMs(result.timings().requestMs());
+        }
+        dto.setIsSuccessful(result.isUp());
+        dto.setCheckedAt(checkedAt);
+        publish(list, "check", dto);
+    }
+
+    //Incidente aberto (opened = true) ou resolvido (chamado pelo IncidentService depois do commit)
+    public void publishIncident(Monitor monitor, Incident incident, boolean opened) {
+        List<LiveSubscriber> list = subscribersOf(monitor);
+        if (list == null) {
+            return;
+        }
+        IncidentResponseDTO dto = new IncidentResponseDTO();
+        dto.setId(incident.getId());
+        dto.setTitle(incident.getTitle());
+        dto.setSeverity(incident.getSeverity());
+        dto.setDescription(incident.getDescription());
+        dto.setStatus(incident.getStatus());
+        dto.setCreatedAt(incident.getCreatedAt());
+        dto.setEndedAt(incident.getEndedAt());
+        dto.setMonitorId(monitor.getId());
+        publish(list, opened ? "incident-opened" : "incident-resolved", dto);
+    }
+
+    //getUser().getId() não carrega o usuário: o proxy LAZY já sabe o próprio ID
+    private List<LiveSubscriber> subscribersOf(Monitor monitor) {
+        if (monitor.getUser() == null) {
+            return null;
+        }
+        List<LiveSubscriber> list = subscribers.get(monitor.getUser().getId());
+        return (list == null || list.isEmpty()) ? null : list;
+    }
+
+    private void publish(List<LiveSubscriber> list, String name, Object data) {
+        for (LiveSubscriber subscriber : list) {
+            //Um builder por conexão: cada uma escreve o seu na própria thread
+            int lost = subscriber.offer(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            if (lost > 0) {
+                droppedCounter.increment(lost);
+            }
+        }
+    }
+
+    //Fecha as conexões junto com a aplicação (os clientes reconectam em outra instância)
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.getEmitter().complete()));
+        senders.shutdownNow();
+    }
+}
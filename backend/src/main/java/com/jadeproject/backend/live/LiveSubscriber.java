@@ -0,0 +1,96 @@
+package com.jadeproject.backend.live;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/*UMA conexão SSE aberta. Quem publica (threads do scheduler) só coloca o evento na fila, nunca espera a rede;
+* uma virtual thread por conexão tira da fila e escreve no socket.
+* Fila cheia (cliente lento ou rede ruim): o evento MAIS ANTIGO é descartado. O cliente recebe um evento
+* "overflow" com quantos se perderam e pode recarregar o estado pelas rotas REST.*/
+@Slf4j
+class LiveSubscriber implements Runnable {
+
+    private final Long userId;
+    private final SseEmitter emitter;
+    private final LinkedBlockingDeque<SseEmitter.SseEventBuilder> queue;
+    private final Duration heartbeat;
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final Consumer<LiveSubscriber> onClose;
+    private volatile boolean open = true;
+    private volatile Thread sender;
+
+    LiveSubscriber(Long userId, SseEmitter emitter, int bufferSize, Duration heartbeat,
+                   Consumer<LiveSubscriber> onClose) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.queue = new LinkedBlockingDeque<>(bufferSize);
+        this.heartbeat = heartbeat;
+        this.onClose = onClose;
+    }
+
+    Long getUserId() {
+        return userId;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    //Não bloqueia. Retorna quantos eventos antigos foram descartados para abrir espaço
+    int offer(SseEmitter.SseEventBuilder event) {
+        int lost = 0;
+        while (open && !queue.offerLast(event)) {
+            if (queue.pollFirst() != null) {
+                lost++;
+            }
+        }
+        if (lost > 0) {
+            dropped.addAndGet(lost);
+        }
+        return lost;
+    }
+
+    @Override
+    public void run() {
+        sender = Thread.currentThread();
+        try {
+            while (open) {
+                SseEmitter.SseEventBuilder event = queue.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                int lost = dropped.getAndSet(0);
+                if (lost > 0) {
+                    emitter.send(SseEmitter.event().name("overflow").data(lost));
+                }
+                //Sem evento no intervalo: um comentário mantém a conexão viva em proxies e detecta cliente que sumiu
+                emitter.send(event != null ? event : SseEmitter.event().comment("ping"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            //Cliente desconectou (ou o emitter já foi encerrado pelo timeout). O container avisa o emitter sozinho
+            log.debug("Stream ao vivo do usuário {} encerrado: {}", userId, e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    //Chamado pelo emitter (timeout, erro, fim) ou pelo próprio loop. Pode ser chamado mais de uma vez
+    void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        queue.clear();
+        onClose.accept(this);
+        Thread thread = sender;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+}
@@ -53,6 +53,12 @@ public class Monitor {
     @Column(name = "last_checked")
     private OffsetDateTime lastChecked;
 
+    //Como o histórico é gravado (migração V10):
+    //  FULL -> uma linha por verificação;
+    //  STATE_CHANGE -> linha completa só quando o status muda, repetições resumidas em runs (ver HistoryRunTracker)
+    @Column(name = "storage_mode", nullable = false, length = 20)
+    private String storageMode = "FULL";
+
     @PrePersist
     protected void onCreate() {
         /*A classe Monitor funciona como um modelo de formulário em branco.
@@ -67,6 +73,9 @@ public class Monitor {
         if (this.intervalSeconds == null) {
             this.intervalSeconds = 300;
         }
+        if (this.storageMode == null) {
+            this.storageMode = "FULL";
+        }
     }
 }
 
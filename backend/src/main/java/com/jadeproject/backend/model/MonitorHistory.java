@@ -3,6 +3,7 @@ package com.jadeproject.backend.model;
 import jakarta.persistence.*;
 import lombok.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.jadeproject.backend.run.HistoryRunSummary;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
@@ -15,6 +16,7 @@ import java.time.ZoneOffset;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class MonitorHistory {
 
+    //No banco a PK é (id, checked_at), exigência da tabela particionada (V7). O id continua único (vem de um sequence)
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @EqualsAndHashCode.Include
@@ -34,14 +36,32 @@ public class MonitorHistory {
     @Column(name = "latency_ms")
     private Integer latency;
 
+    //Fases da verificação (ver ProbeTimings). Nulas quando a fase não foi medida
+    @Column(name = "dns_ms")
+    private Integer dnsMs;
+
+    @Column(name = "connect_ms")
+    private Integer connectMs;
+
+    @Column(name = "tls_ms")
+    private Integer tlsMs;
+
+    @Column(name = "request_ms")
+    private Integer requestMs;
+
     //Sem '= true' ou '=false'. O serviço de ping deve ser OBRIGADO a dizer se foi sucesso ou falha.
     //Esquecendo de setar, ele salva NULL (o que indica erro de código, porém é melhor que falso positivo).
     @Column(name = "is_successful")
     private Boolean isSuccessful;
 
-    @Column(name = "checked_at", updatable = false)
+    @Column(name = "checked_at", nullable = false, updatable = false) //Chave de partição: nunca nula
     private OffsetDateTime checkedAt;
 
+    //Modo STATE_CHANGE: verificações com o mesmo status que vieram depois desta linha (monitor_history_run).
+    //Não é coluna: preenchido pelo MonitorHistoryService na leitura. Null = nenhuma repetição resumida
+    @Transient
+    private HistoryRunSummary repeats;
+
     @PrePersist
     protected void onCreate() {
         if (this.checkedAt == null) {
@@ -0,0 +1,33 @@
+package com.jadeproject.backend.probe;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.stream.Stream;
+
+/*Provider do SPI de resolução de nomes (JEP 418). Registrado em META-INF/services e carregado pela própria JVM
+* na primeira resolução de nome. Delega ao resolvedor padrão do sistema, passando pelo DnsCache.*/
+public class CachingDnsResolverProvider extends InetAddressResolverProvider {
+
+    @Override
+    public InetAddressResolver get(Configuration configuration) {
+        InetAddressResolver builtin = configuration.builtinResolver();
+        return new InetAddressResolver() {
+            @Override
+            public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+                return DnsCache.getInstance().lookup(host, lookupPolicy, builtin);
+            }
+
+            @Override
+            public String lookupByAddress(byte[] addr) throws UnknownHostException {
+                return builtin.lookupByAddress(addr); //DNS reverso não é usado pelas verificações: sem cache
+            }
+        };
+    }
+
+    @Override
+    public String name() {
+        return "jade-caching-resolver";
+    }
+}
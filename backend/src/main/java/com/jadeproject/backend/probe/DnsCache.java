@@ -0,0 +1,141 @@
+package com.jadeproject.backend.probe;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolver.LookupPolicy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/*Cache de resolução de nomes (DNS) usado por TODA a JVM, incluindo o HttpClient das verificações.
+* Instalado pelo CachingDnsResolverProvider (SPI do java.net, Java 18+), que é carregado pela JVM e não pelo Spring.
+* Por isso é um singleton estático: o Spring só ajusta os parâmetros e lê as estatísticas (ver DnsCacheMetrics).
+*
+*   - Positivo: endereço resolvido fica em cache por ttl. O resolvedor do sistema não informa o TTL do registro DNS,
+*     então o ttl configurado funciona como teto (mantê-lo baixo respeita mudanças de IP no alvo);
+*   - Negativo: "host não existe" também fica em cache (negative-ttl), para não martelar o resolvedor com um domínio morto;
+*   - Limitado: no máximo max-entries nomes (LRU).
+*
+* Contagem (métricas jade.probe.dns.cache.*): a unidade é a VERIFICAÇÃO. O HttpProbeClient resolve o nome antes de
+* enviar (resolveForProbe, para medir o dns_ms) e o HttpClient resolve de novo ao abrir uma conexão; essa segunda
+* consulta sempre acha o nome que acabou de entrar no cache. Por isso hit só conta na resolução da verificação;
+* miss conta sempre (é uma resolução de verdade, venha de onde vier).*/
+public final class DnsCache {
+
+    private static final DnsCache INSTANCE = new DnsCache();
+
+    private volatile long positiveTtlNanos = 60_000_000_000L;
+    private volatile long negativeTtlNanos = 10_000_000_000L;
+    private volatile int maxEntries = 10_000;
+    private volatile LongConsumer resolutionTimeRecorder = nanos -> { };
+
+    //LRU: LinkedHashMap em ordem de acesso remove o mais antigo quando passa do limite
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    //true enquanto a thread está na resolução de uma verificação (resolveForProbe)
+    private final ThreadLocal<Boolean> probeLookup = new ThreadLocal<>();
+
+    private DnsCache() {
+    }
+
+    public static DnsCache getInstance() {
+        return INSTANCE;
+    }
+
+    public void configure(long ttlSeconds, long negativeTtlSeconds, int maxEntries) {
+        this.positiveTtlNanos = ttlSeconds * 1_000_000_000L;
+        this.negativeTtlNanos = negativeTtlSeconds * 1_000_000_000L;
+        this.maxEntries = maxEntries;
+    }
+
+    //Recebe a duração (ns) de cada resolução feita de verdade (cache miss)
+    public void setResolutionTimeRecorder(LongConsumer recorder) {
+        this.resolutionTimeRecorder = recorder;
+    }
+
+    //Resolução feita pela verificação (passa pelo SPI, ou seja, por lookup, na mesma thread): é a que conta hit
+    public InetAddress resolveForProbe(String host) throws UnknownHostException {
+        probeLookup.set(Boolean.TRUE);
+        try {
+            return InetAddress.getByName(host);
+        } finally {
+            probeLookup.remove();
+        }
+    }
+
+    public Stream<InetAddress> lookup(String host, LookupPolicy policy, InetAddressResolver delegate)
+            throws UnknownHostException {
+        return lookup(host, policy, delegate, Boolean.TRUE.equals(probeLookup.get()));
+    }
+
+    Stream<InetAddress> lookup(String host, LookupPolicy policy, InetAddressResolver delegate, boolean countHit)
+            throws UnknownHostException {
+        String key = policy.characteristics() + "|" + host;
+        long now = System.nanoTime();
+
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null && now < cached.expiresAtNanos) {
+            if (countHit) {
+                hits.increment();
+            }
+            if (cached.addresses == null) {
+                throw new UnknownHostException(host + " (cache negativo)");
+            }
+            return Arrays.stream(cached.addresses);
+        }
+
+        //Miss: resolve de verdade (fora do lock, para um nome lento não travar os outros)
+        misses.increment();
+        long start = System.nanoTime();
+        try {
+            InetAddress[] addresses = delegate.lookupByName(host, policy).toArray(InetAddress[]::new);
+            long end = System.nanoTime();
+            resolutionTimeRecorder.accept(end - start);
+            put(key, new Entry(addresses, end + positiveTtlNanos));
+            return Arrays.stream(addresses);
+        } catch (UnknownHostException e) {
+            long end = System.nanoTime();
+            resolutionTimeRecorder.accept(end - start);
+            failures.increment();
+            put(key, new Entry(null, end + negativeTtlNanos));
+            throw e;
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public long hitCount() { return hits.sum(); }
+
+    public long missCount() { return misses.sum(); }
+
+    public long failureCount() { return failures.sum(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    //addresses == null representa um resultado negativo (host não encontrado)
+    private record Entry(InetAddress[] addresses, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.jadeproject.backend.probe;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+//Liga o DnsCache (que vive fora do Spring) às propriedades e às métricas do Actuator
+@Component
+public class DnsCacheMetrics implements MeterBinder {
+
+    public DnsCacheMetrics(@Value("${jade.probe.dns.ttl-seconds:60}") long ttlSeconds,
+                           @Value("${jade.probe.dns.negative-ttl-seconds:10}") long negativeTtlSeconds,
+                           @Value("${jade.probe.dns.max-entries:10000}") int maxEntries) {
+        DnsCache.getInstance().configure(ttlSeconds, negativeTtlSeconds, maxEntries);
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        DnsCache cache = DnsCache.getInstance();
+
+        Timer resolutionTimer = Timer.builder("jade.probe.dns.resolution")
+                .description("Tempo das resoluções de nome feitas de verdade (cache miss)")
+                .register(registry);
+        cache.setResolutionTimeRecorder(nanos -> resolutionTimer.record(nanos, TimeUnit.NANOSECONDS));
+
+        //Taxa de acerto = hits / (hits + misses), por verificação (ver DnsCache)
+        FunctionCounter.builder("jade.probe.dns.cache.hits", cache, DnsCache::hitCount)
+                .description("Verificações cujo nome já estava no cache")
+                .register(registry);
+        FunctionCounter.builder("jade.probe.dns.cache.misses", cache, DnsCache::missCount)
+                .description("Resoluções de nome feitas de verdade")
+                .register(registry);
+        FunctionCounter.builder("jade.probe.dns.failures", cache, DnsCache::failureCount)
+                .description("Nomes que não resolveram (host inexistente ou erro do resolvedor)")
+                .register(registry);
+        Gauge.builder("jade.probe.dns.cache.size", cache, DnsCache::size).register(registry);
+    }
+}
@@ -0,0 +1,124 @@
+package com.jadeproject.backend.probe;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/*Mede conexão TCP e handshake TLS de um host, com uma conexão descartável aberta só para isso.
+* O HttpClient compartilhado reaproveita conexões (keep-alive) e não expõe quanto tempo gastou conectando,
+* então a verificação normal não enxerga essas fases. Em vez de abrir uma conexão nova a cada verificação
+* (o que desfaria o pool), cada host é amostrado no máximo uma vez a cada jade.probe.timing.handshake-sample-seconds.
+*
+* A amostra roda em SEGUNDO PLANO, depois que a verificação já terminou e devolveu as vagas do bulkhead e do limite
+* global: ninguém espera por ela. O resultado fica guardado e vai na PRÓXIMA verificação do host (takeSample).
+*
+* Hosts que deixaram de ser verificados saem da memória na varredura (sweep-ms), junto com a amostra pendente.*/
+@Slf4j
+@Component
+public class HandshakeSampler {
+
+    private final long sampleIntervalNanos;
+    private final int connectTimeoutMs;
+    //authority (host:porta) -> nanoTime da última amostra
+    private final ConcurrentHashMap<String, Long> lastSampled = new ConcurrentHashMap<>();
+    //authority -> amostra medida e ainda não gravada em nenhuma verificação
+    private final ConcurrentHashMap<String, long[]> pendingSamples = new ConcurrentHashMap<>();
+
+    public HandshakeSampler(@Value("${jade.probe.timing.handshake-sample-seconds:300}") long sampleIntervalSeconds,
+                            @Value("${jade.probe.connect-timeout-ms:3000}") int connectTimeoutMs) {
+        this.sampleIntervalNanos = sampleIntervalSeconds * 1_000_000_000L;
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    //Se for a vez deste host, agenda uma amostra no executor e volta na hora
+    void sampleInBackgroundIfDue(String host, InetAddress address, int port, boolean tls, Executor executor) {
+        String authority = host + ":" + port;
+        if (sampleIntervalNanos <= 0 || !claim(authority)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                long[] sample = sample(host, address, port, tls);
+                if (sample != null) {
+                    pendingSamples.put(authority, sample);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //Aplicação desligando: fica sem a amostra
+        }
+    }
+
+    //Amostra pendente do host (retira do mapa: cada amostra vai em uma verificação só), ou null
+    long[] takeSample(String host, int port) {
+        return pendingSamples.remove(host + ":" + port);
+    }
+
+    //Devolve {connectNanos, tlsNanos} (tlsNanos = -1 sem TLS) ou null se falhou. Bloqueante.
+    private long[] sample(String host, InetAddress address, int port, boolean tls) {
+        try (Socket socket = new Socket()) {
+            long start = System.nanoTime();
+            socket.connect(new InetSocketAddress(address, port), connectTimeoutMs);
+            long connected = System.nanoTime();
+            if (!tls) {
+                return new long[]{connected - start, -1};
+            }
+
+            socket.setSoTimeout(connectTimeoutMs);
+            SSLSocketFactory factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+            try (SSLSocket sslSocket = (SSLSocket) factory.createSocket(socket, host, port, true)) {
+                sslSocket.startHandshake();
+                return new long[]{connected - start, System.nanoTime() - connected};
+            }
+        } catch (IOException e) {
+            //A verificação de verdade vai reportar a falha; aqui só perdemos a amostra
+            log.debug("Falha ao amostrar handshake de {}:{} - {}", host, port, e.getMessage());
+            return null;
+        }
+    }
+
+    //Descarta os hosts amostrados há mais de uma janela: para o claim é o mesmo que nunca ter amostrado,
+    //e uma amostra pendente tão antiga já não descreve a conexão de hoje
+    @Scheduled(initialDelayString = "${jade.probe.timing.sweep-ms:600000}",
+            fixedDelayString = "${jade.probe.timing.sweep-ms:600000}")
+    public void evictStale() {
+        long now = System.nanoTime();
+        for (String authority : lastSampled.keySet()) {
+            lastSampled.computeIfPresent(authority, (key, last) -> {
+                if (now - last < sampleIntervalNanos) {
+                    return last;
+                }
+                pendingSamples.remove(key);
+                return null;
+            });
+        }
+    }
+
+    int size() {
+        return lastSampled.size();
+    }
+
+    //Só uma verificação por janela ganha o direito de amostrar o host
+    private boolean claim(String authority) {
+        long now = System.nanoTime();
+        boolean[] claimed = {false};
+        lastSampled.compute(authority, (key, last) -> {
+            if (last == null || now - last >= sampleIntervalNanos) {
+                claimed[0] = true;
+                return now;
+            }
+            return last;
+        });
+        return claimed[0];
+    }
+}
@@ -0,0 +1,167 @@
+package com.jadeproject.backend.probe;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*Bulkhead por host (authority = host + porta) para as verificações.
+* Vários usuários podem monitorar a mesma URL e um usuário pode apontar vários monitores para o mesmo host.
+* Sem este limite, um único host lento ocuparia todas as vagas do limite global e travaria as verificações dos hosts saudáveis.
+*
+* Cada host tem sua própria "pista": no máximo N verificações simultâneas e uma fila de espera limitada.
+* Quem chega com a fila cheia é rejeitado na hora (a verificação é pulada), para nunca martelar a mesma origem.
+*
+* As pistas só existem enquanto são usadas: uma pista parada há mais de idle-evict-ms é descartada (hosts de monitores
+* excluídos ou de URLs digitadas errado não ficam em memória para sempre).
+* Métricas SEM a tag de host: a URL é escolhida pelo usuário, e uma série por host deixaria qualquer um criar
+* séries ilimitadas no Micrometer. O host aparece no log quando uma verificação é rejeitada.*/
+@Slf4j
+@Component
+public class HostBulkhead {
+
+    private final int maxConcurrentPerHost;
+    private final int maxQueuedPerHost;
+    private final long idleEvictNanos;
+    private final ConcurrentHashMap<String, HostLane> lanes = new ConcurrentHashMap<>();
+    private final Counter rejectedCounter;
+
+    public HostBulkhead(@Value("${jade.probe.host.max-concurrency:4}") int maxConcurrentPerHost,
+                        @Value("${jade.probe.host.max-queue:50}") int maxQueuedPerHost,
+                        @Value("${jade.probe.host.idle-evict-ms:600000}") long idleEvictMs,
+                        MeterRegistry meterRegistry) {
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+        this.maxQueuedPerHost = maxQueuedPerHost;
+        this.idleEvictNanos = idleEvictMs * 1_000_000;
+
+        this.rejectedCounter = Counter.builder("jade.probe.host.rejected")
+                .description("Verificações puladas porque a fila do host estava cheia")
+                .register(meterRegistry);
+        Gauge.builder("jade.probe.host.lanes", lanes, ConcurrentHashMap::size)
+                .description("Hosts com pista de bulkhead em memória")
+                .register(meterRegistry);
+        //Os gauges observam o mapa de pistas (e não o this, que ainda está sendo construído)
+        Gauge.builder("jade.probe.host.queue.depth", lanes, HostBulkhead::totalWaiting)
+                .description("Verificações esperando vaga no próprio host (soma de todos os hosts)")
+                .register(meterRegistry);
+        Gauge.builder("jade.probe.host.queue.depth.max", lanes, HostBulkhead::maxWaiting)
+                .description("Maior fila de espera entre os hosts")
+                .register(meterRegistry);
+    }
+
+    //Espera por uma vaga no host da URL. Retorna null se a fila desse host já estiver cheia.
+    //A vaga DEVE ser devolvida com close() (use try-with-resources).
+    public Permit acquire(String urlAddress) throws InterruptedException {
+        String authority = authorityOf(urlAddress);
+        //compute é atômico por chave: a pista não pode ser descartada entre pegar e marcar como em uso
+        HostLane lane = lanes.compute(authority, (key, existing) -> {
+            HostLane current = existing != null ? existing : new HostLane(new Semaphore(maxConcurrentPerHost, true)); //fair: FIFO
+            current.users.incrementAndGet();
+            return current;
+        });
+
+        boolean acquired = false;
+        try {
+            if (lane.waiting.incrementAndGet() > maxQueuedPerHost) {
+                lane.waiting.decrementAndGet();
+                rejectedCounter.increment();
+                log.warn("Fila do host {} cheia ({} esperando). Verificação pulada.", authority, maxQueuedPerHost);
+                return null;
+            }
+            try {
+                lane.permits.acquire();
+            } finally {
+                lane.waiting.decrementAndGet();
+            }
+            acquired = true;
+            return new Permit(lane);
+        } finally {
+            if (!acquired) {
+                lane.release(false);
+            }
+        }
+    }
+
+    //Descarta as pistas sem uso há mais de idle-evict-ms
+    @Scheduled(initialDelayString = "${jade.probe.host.idle-evict-ms:600000}",
+            fixedDelayString = "${jade.probe.host.idle-evict-ms:600000}")
+    public void evictIdleLanes() {
+        long now = System.nanoTime();
+        for (String authority : lanes.keySet()) {
+            //Mesmo compute do acquire: quem está pegando a pista agora impede a remoção (users > 0)
+            lanes.computeIfPresent(authority, (key, lane) ->
+                    lane.users.get() == 0 && now - lane.lastUsed > idleEvictNanos ? null : lane);
+        }
+    }
+
+    int laneCount() {
+        return lanes.size();
+    }
+
+    private static double totalWaiting(ConcurrentHashMap<String, HostLane> lanes) {
+        return lanes.values().stream().mapToInt(lane -> lane.waiting.get()).sum();
+    }
+
+    private static double maxWaiting(ConcurrentHashMap<String, HostLane> lanes) {
+        return lanes.values().stream().mapToInt(lane -> lane.waiting.get()).max().orElse(0);
+    }
+
+    //Chave do bulkhead: host em minúsculas + porta efetiva (https://a.com e https://a.com:443 são a mesma origem)
+    static String authorityOf(String urlAddress) {
+        try {
+            URI uri = URI.create(urlAddress);
+            if (uri.getHost() == null) {
+                return urlAddress;
+            }
+            int port = uri.getPort();
+            if (port == -1) {
+                port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+            }
+            return uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+        } catch (IllegalArgumentException e) {
+            return urlAddress; //URL inválida: fica isolada na própria pista
+        }
+    }
+
+    private static class HostLane {
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicInteger users = new AtomicInteger(); //Esperando ou com vaga: pista em uso não é descartada
+        private volatile long lastUsed = System.nanoTime();
+
+        private HostLane(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        private void release(boolean holdsPermit) {
+            if (holdsPermit) {
+                permits.release();
+            }
+            lastUsed = System.nanoTime();
+            users.decrementAndGet();
+        }
+    }
+
+    //Vaga ocupada em um host
+    public static class Permit implements AutoCloseable {
+        private final HostLane lane;
+
+        private Permit(HostLane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void close() {
+            lane.release(true);
+        }
+    }
+}
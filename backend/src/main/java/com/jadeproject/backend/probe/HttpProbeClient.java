@@ -0,0 +1,143 @@
+package com.jadeproject.backend.probe;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*Transporte HTTP das verificações (substitui o HttpURLConnection do antigo pingUrl).
+* Um ÚNICO HttpClient é compartilhado por todas as verificações:
+*   - Reaproveita conexões (keep-alive) e sessões TLS entre pings do mesmo host, em vez de refazer o handshake toda vez;
+*   - Negocia HTTP/2 via ALPN quando o alvo suporta (várias requisições multiplexadas na mesma conexão);
+*   - É assíncrono: o I/O é feito por um selector interno, sem uma thread bloqueada por socket.*/
+@Slf4j
+@Component
+public class HttpProbeClient {
+
+    private final ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final HandshakeSampler handshakeSampler;
+
+    public HttpProbeClient(@Value("${jade.probe.connect-timeout-ms:3000}") long connectTimeoutMs,
+                           @Value("${jade.probe.request-timeout-ms:3000}") long requestTimeoutMs,
+                           HandshakeSampler handshakeSampler) {
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.handshakeSampler = handshakeSampler;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) //Tenta HTTP/2 e cai para HTTP/1.1 se o servidor não suportar
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs)) //Espera no máx Xs para conectar
+                .followRedirects(HttpClient.Redirect.NORMAL) //Mesmo comportamento do HttpURLConnection (segue redirects, menos https -> http)
+                .executor(clientExecutor) //Callbacks das respostas rodam em virtual threads
+                .build();
+    }
+
+    /*Dispara um HEAD (não baixa o body) e devolve o resultado quando a resposta chegar.
+    * O future NUNCA completa com exceção: qualquer falha vira statusCode 0 ("sem resposta").
+    *
+    * Fases medidas (ver ProbeTimings):
+    *   1. DNS: resolvemos o host antes de enviar (passa pelo DnsCache; o HttpClient depois acha o nome no cache,
+    *      sem contar como hit: ver DnsCache);
+    *   2. Requisição: o BodyHandler é chamado quando os headers chegam, então marcamos o tempo ali
+    *      (inclui abrir a conexão quando o pool não tem uma pronta, ver ProbeTimings.requestMs);
+    *   3. Conexão/TLS: o HandshakeSampler mede numa conexão descartável, em segundo plano, depois que esta
+    *      verificação terminou (ninguém espera por ela; nem entra no responseTimeMs). A amostra medida vai na
+    *      próxima verificação do host, por isso connectMs/tlsMs só aparecem de tempos em tempos.
+    * O passo 1 bloqueia a thread chamadora: chamar de uma virtual thread (como faz o MonitorScheduler).*/
+    public CompletableFuture<ProbeResult> probe(String urlAddress) {
+        long startTime = System.nanoTime(); //nanoTime é monotônico (não sofre com ajuste de relógio)
+
+        URI uri;
+        HttpRequest request;
+        try {
+            uri = URI.create(urlAddress);
+            request = HttpRequest.newBuilder(uri)
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(requestTimeout) //Espera no máx Xs pela resposta
+                    .build();
+        } catch (IllegalArgumentException e) {
+            //URL malformada: nem chega a sair da máquina
+            log.warn("URL inválida para verificação: {}", urlAddress);
+            return CompletableFuture.completedFuture(new ProbeResult(0, 0, "URL inválida", ProbeTimings.NONE));
+        }
+
+        //1. DNS
+        InetAddress address;
+        try {
+            address = DnsCache.getInstance().resolveForProbe(uri.getHost());
+        } catch (UnknownHostException e) {
+            long elapsed = System.nanoTime() - startTime;
+            ProbeTimings timings = new ProbeTimings(ProbeTimings.toMillis(elapsed), null, null, null);
+            return CompletableFuture.completedFuture(
+                    new ProbeResult(0, elapsed / 1_000_000, "Erro de DNS", timings));
+        }
+        long resolvedAt = System.nanoTime();
+
+        //2. Requisição
+        AtomicLong headersAt = new AtomicLong();
+        HttpResponse.BodyHandler<Void> bodyHandler = responseInfo -> {
+            headersAt.compareAndSet(0, System.nanoTime()); //Com redirects, vale o primeiro byte da primeira resposta
+            return HttpResponse.BodySubscribers.discarding();
+        };
+        long sentAt = System.nanoTime();
+
+        boolean https = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : (https ? 443 : 80);
+
+        return httpClient.sendAsync(request, bodyHandler)
+                .handle((response, error) -> {
+                    long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+                    long firstByte = headersAt.get();
+                    long[] handshake = handshakeSampler.takeSample(uri.getHost(), port); //3. Amostra anterior, se houver
+                    ProbeTimings timings = new ProbeTimings(
+                            ProbeTimings.toMillis(resolvedAt - startTime),
+                            handshake != null ? ProbeTimings.toMillis(handshake[0]) : null,
+                            handshake != null && handshake[1] >= 0 ? ProbeTimings.toMillis(handshake[1]) : null,
+                            firstByte != 0 ? ProbeTimings.toMillis(firstByte - sentAt) : null);
+                    if (error != null) {
+                        //Se der erro de DNS, timeout ou qualquer exceção, não tem código HTTP
+                        return new ProbeResult(0, elapsedMs, classifyError(error), timings);
+                    }
+                    //Alvo que não respondeu não é amostrado: a conexão descartável só esperaria o mesmo timeout de novo
+                    handshakeSampler.sampleInBackgroundIfDue(uri.getHost(), address, port, https, clientExecutor);
+                    //Retorna o código real (ex: 200, 404, 500)
+                    return new ProbeResult(response.statusCode(), elapsedMs, null, timings);
+                });
+    }
+
+    /*Traduz a exceção do HttpClient num motivo legível para o incidente.
+    * A exceção original vem embrulhada (CompletionException, IOException...), então percorremos a cadeia de causas.
+    * A ordem importa: HttpConnectTimeoutException é subclasse de HttpTimeoutException.*/
+    static String classifyError(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof UnknownHostException) return "Erro de DNS";
+            if (t instanceof HttpConnectTimeoutException) return "Timeout de conexão";
+            if (t instanceof HttpTimeoutException) return "Timeout de resposta";
+            if (t instanceof ConnectException) return "Conexão recusada";
+            if (t instanceof SSLException) return "Erro de TLS";
+        }
+        return "Falha de conexão";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpClient.shutdownNow(); //Fecha as conexões do pool
+        clientExecutor.shutdownNow();
+    }
+}
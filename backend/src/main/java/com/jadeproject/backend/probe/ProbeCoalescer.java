@@ -0,0 +1,115 @@
+package com.jadeproject.backend.probe;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Junta (coalesce) verificações idênticas de monitores diferentes.
+* Dois usuários (ou dois monitores do mesmo usuário com intervalos diferentes) olhando para https://google.com
+* geravam duas requisições HTTP, mesmo vencendo com 1 segundo de diferença.
+*
+* Agora a primeira verificação de um alvo (método + URL) vira a "líder" e faz a requisição de verdade.
+* Quem pedir o mesmo alvo enquanto ela está em andamento, ou até window-ms depois de terminar, recebe o MESMO resultado.
+* Cada monitor continua gravando seu próprio histórico e tratando seus próprios incidentes com esse resultado.
+*
+* As entradas só ficam no mapa enquanto podem ser reaproveitadas: falha e verificação pulada saem na hora, e
+* as que passaram da janela são varridas a cada sweep-ms (alvos de monitores excluídos ou editados não ficam para sempre).*/
+@Component
+public class ProbeCoalescer {
+
+    private final long freshnessNanos;
+    private final ConcurrentHashMap<String, SharedProbe> probes = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public ProbeCoalescer(@Value("${jade.probe.coalesce.window-ms:1000}") long freshnessMs,
+                          MeterRegistry meterRegistry) {
+        this.freshnessNanos = freshnessMs * 1_000_000;
+        this.coalescedCounter = Counter.builder("jade.probe.coalesced")
+                .description("Verificações atendidas por uma requisição já em andamento ou recente")
+                .register(meterRegistry);
+    }
+
+    //Tarefa que faz a requisição de verdade. Pode retornar null (verificação pulada, ex: fila do host cheia).
+    @FunctionalInterface
+    public interface ProbeTask {
+        ProbeResult run() throws InterruptedException;
+    }
+
+    public ProbeResult execute(String method, String urlAddress, ProbeTask task) throws InterruptedException {
+        String key = method + " " + urlAddress;
+        SharedProbe mine = new SharedProbe();
+        long now = System.nanoTime();
+
+        SharedProbe shared = probes.compute(key, (k, existing) ->
+                existing != null && existing.isReusable(now, freshnessNanos) ? existing : mine);
+
+        if (shared != mine) {
+            //Seguidor: espera o resultado da líder (a virtual thread só estaciona)
+            coalescedCounter.increment();
+            try {
+                return shared.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        //Líder: faz a requisição e entrega o resultado para todo mundo que estiver esperando
+        try {
+            ProbeResult result = task.run();
+            mine.complete(result);
+            if (result == null) {
+                probes.remove(key, mine); //Pulada: os próximos tentam de novo
+            }
+            return result;
+        } catch (InterruptedException | RuntimeException e) {
+            mine.fail(e);
+            probes.remove(key, mine); //Falha não é reaproveitada pelos próximos
+            throw e;
+        }
+    }
+
+    //Descarta as entradas que já passaram da janela
+    @Scheduled(initialDelayString = "${jade.probe.coalesce.sweep-ms:60000}",
+            fixedDelayString = "${jade.probe.coalesce.sweep-ms:60000}")
+    public void evictStale() {
+        long now = System.nanoTime();
+        for (String key : probes.keySet()) {
+            //Mesmo critério do compute do execute: o que ainda seria reaproveitado fica
+            probes.computeIfPresent(key, (k, probe) -> probe.isReusable(now, freshnessNanos) ? probe : null);
+        }
+    }
+
+    int size() {
+        return probes.size();
+    }
+
+    private static class SharedProbe {
+        private final CompletableFuture<ProbeResult> result = new CompletableFuture<>();
+        private volatile long completedAtNanos;
+
+        private void complete(ProbeResult probeResult) {
+            completedAtNanos = System.nanoTime();
+            result.complete(probeResult);
+        }
+
+        private void fail(Exception e) {
+            result.completeExceptionally(e);
+        }
+
+        //Em andamento, ou terminou há menos de 'freshness' (e não foi pulada nem falhou)
+        private boolean isReusable(long now, long freshnessNanos) {
+            if (!result.isDone()) {
+                return true;
+            }
+            return !result.isCompletedExceptionally()
+                    && result.getNow(null) != null
+                    && now - completedAtNanos < freshnessNanos;
+        }
+    }
+}
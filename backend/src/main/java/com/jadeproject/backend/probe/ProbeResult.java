@@ -0,0 +1,12 @@
+package com.jadeproject.backend.probe;
+
+//Resultado de UMA verificação HTTP
+//statusCode = 0 significa "sem resposta" (timeout, DNS, conexão recusada...), igual ao pingUrl antigo.
+//errorReason só vem preenchido nesse caso e diz QUAL foi a falha (ver HttpProbeClient.classifyError)
+//responseTimeMs é o tempo total; timings detalha as fases (DNS, conexão, TLS, primeiro byte)
+public record ProbeResult(int statusCode, long responseTimeMs, String errorReason, ProbeTimings timings) {
+
+    public boolean isUp() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+}
@@ -0,0 +1,18 @@
+package com.jadeproject.backend.probe;
+
+/*Tempo de cada fase de uma verificação, em milissegundos (medidos com nanoTime).
+* null = fase não medida nesta verificação:
+*   - dnsMs: resolução do host (via DnsCache; perto de 0 quando vem do cache);
+*   - connectMs / tlsMs: conexão TCP e handshake TLS. O HttpClient reaproveita conexões, então essas fases só
+*     são medidas quando o HandshakeSampler amostra o host (tlsMs fica null em http://);
+*   - requestMs: do envio da requisição até a chegada dos headers da resposta. NÃO é o TTFB do servidor: o Java 21
+*     não diz se o HttpClient reaproveitou uma conexão do pool, então, quando ele abre uma conexão nova, a conexão
+*     TCP e o TLS estão dentro deste tempo. Numa conexão reaproveitada (o caso comum) fica perto do TTFB.*/
+public record ProbeTimings(Integer dnsMs, Integer connectMs, Integer tlsMs, Integer requestMs) {
+
+    public static final ProbeTimings NONE = new ProbeTimings(null, null, null, null);
+
+    static Integer toMillis(long nanos) {
+        return (int) (nanos / 1_000_000);
+    }
+}
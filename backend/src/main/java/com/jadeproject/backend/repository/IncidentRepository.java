@@ -16,4 +16,7 @@ public interface IncidentRepository extends JpaRepository<Incident, Long> {
     //Buscar incidentes abertos de um monitor específico
     //Útil para saber se já tem um incidente aberto antes de criar outro duplicado
     Optional<Incident> findByMonitorIdAndStatus(Long monitorId, String status);
+
+    //Todos os incidentes com um status (usado para carregar os OPEN em memória na subida)
+    List<Incident> findByStatus(String status);
 }
@@ -3,9 +3,12 @@ package com.jadeproject.backend.repository;
 import com.jadeproject.backend.model.MonitorHistory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Pageable; //Importante para o "Limit 10"
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Repository
@@ -20,4 +23,25 @@ public interface MonitorHistoryRepository extends JpaRepository<MonitorHistory,
     //Diferente do Page<>, List<> pede um "pedaço" do total dos dados apenas.
     //Ex.: SELECT * FROM monitor_history WHERE monitor_id = 17 LIMIT 10 OFFSET 0;
     List<MonitorHistory> findByMonitorId(Long monitorId, Pageable pageable);
+
+    //Mesma busca, limitada às verificações depois de 'after'.
+    //Com a tabela particionada por checked_at, o filtro faz o PostgreSQL ler só as partições do período (pruning)
+    //SELECT * FROM monitor_history WHERE monitor_id = ? AND checked_at > ? ...
+    List<MonitorHistory> findByMonitorIdAndCheckedAtAfter(Long monitorId, OffsetDateTime after, Pageable pageable);
+
+    /*Paginação por cursor (keyset): as 'limit' linhas seguintes a (checkedAt, id) na ordem (checked_at DESC, id DESC).
+    * "checked_at <= :checkedAt" é o que posiciona a busca direto no índice (monitor_id, checked_at DESC) e descarta
+    * as partições mais novas; o OR só desempata linhas com o mesmo checked_at. Sem OFFSET e sem COUNT.*/
+    @Query(value = """
+            SELECT * FROM monitor_history
+            WHERE monitor_id = :monitorId
+              AND checked_at <= :checkedAt
+              AND (checked_at < :checkedAt OR id < :id)
+            ORDER BY checked_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<MonitorHistory> findPageAfterCursor(@Param("monitorId") Long monitorId,
+                                             @Param("checkedAt") OffsetDateTime checkedAt,
+                                             @Param("id") Long id,
+                                             @Param("limit") int limit);
 }
@@ -2,9 +2,13 @@ package com.jadeproject.backend.repository;
 
 import com.jadeproject.backend.model.Monitor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @Repository
@@ -20,8 +24,75 @@ public interface MonitorRepository extends JpaRepository<Monitor, Long>{
     //Verifica se existe um monitor com este NOME pertencente a este USER_ID
     boolean existsByNameAndUserId(String name, Long userId);
 
-    //QUERY INTELIGENTE: pega monitors que nunca rodaram (NULL) OU que o tempo (last_checked + intervalo) já ficou no passado
-    //Usamos CURRENT_TIMESTAMP em vez de NOW() para ser mais padrão ANSI, mas o segredo é que agora o campo 'last_checked' no banco guarda o fuso.
-    @Query(value = "SELECT * FROM monitors WHERE last_checked IS NULL OR (last_checked + make_interval(secs => interval_seconds)) < CURRENT_TIMESTAMP", nativeQuery = true)
-    List<Monitor> findMonitorsToProcess();
+    //Monitores ativos (pausados não entram na agenda do scheduler)
+    //SELECT * FROM monitors WHERE is_active = true
+    List<Monitor> findByIsActiveTrue();
+
+    /*MODO CLUSTER: reivindica um lote de monitores que vencem até 'horizon' para o nó 'owner'.
+    * - FOR UPDATE SKIP LOCKED: se outro nó está reivindicando a mesma linha neste instante, ela é pulada (sem esperar, sem duplicar);
+    * - Só pega monitores sem lease ou com lease vencido (nó que caiu);
+    * - UPDATE ... RETURNING devolve os IDs reivindicados na mesma ida ao banco;
+    * - Vencimento por next_check_at (V11): busca por faixa no índice parcial de monitores ativos, do mais atrasado ao
+    *   menos atrasado, em vez de calcular last_checked + intervalo para cada linha da tabela.
+    * Roda em transação de escrita própria (a query altera linhas).*/
+    @Transactional
+    @Query(value = """
+            UPDATE monitors SET lease_owner = :owner, lease_until = :leaseUntil
+            WHERE id IN (
+                SELECT id FROM monitors
+                WHERE is_active = TRUE
+                  AND (lease_until IS NULL OR lease_until < CURRENT_TIMESTAMP)
+                  AND next_check_at <= :horizon
+                ORDER BY next_check_at
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id
+            """, nativeQuery = true)
+    List<Long> claimDueMonitors(@Param("owner") String owner,
+                                @Param("horizon") OffsetDateTime horizon,
+                                @Param("leaseUntil") OffsetDateTime leaseUntil,
+                                @Param("batchSize") int batchSize);
+
+    /*Grava o last_checked (e o next_check_at) de um LOTE de verificações num único UPDATE (chamado pelo MonitorHistoryWriter).
+    * unnest transforma os arrays em uma "tabela" (id, checked_at, next_check_at, lease_owner) que é juntada com monitors.
+    *   - GREATEST: um lote atrasado nunca faz o last_checked andar para trás (GREATEST ignora NULL);
+    *     pelo mesmo motivo, o next_check_at só muda se a verificação for a mais recente;
+    *   - Modo cluster: devolve o lease junto, mas só se ele ainda for do nó que fez a verificação
+    *     (no SET, m.lease_owner é sempre o valor ANTIGO da linha, então os dois CASE enxergam o mesmo dono).
+    * Os ids não podem se repetir dentro do lote (o writer manda só a verificação mais recente de cada monitor).*/
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE monitors m
+            SET last_checked = GREATEST(m.last_checked, v.checked_at),
+                next_check_at = CASE WHEN m.last_checked IS NULL OR v.checked_at >= m.last_checked
+                                     THEN v.next_check_at ELSE m.next_check_at END,
+                lease_owner = CASE WHEN m.lease_owner = v.lease_owner THEN NULL ELSE m.lease_owner END,
+                lease_until = CASE WHEN m.lease_owner = v.lease_owner THEN NULL ELSE m.lease_until END
+            FROM unnest(CAST(:ids AS bigint[]), CAST(:checkedAts AS timestamptz[]),
+                        CAST(:nextCheckAts AS timestamptz[]), CAST(:leaseOwners AS text[]))
+                AS v(id, checked_at, next_check_at, lease_owner)
+            WHERE m.id = v.id
+            """, nativeQuery = true)
+    int markChecked(@Param("ids") Long[] ids,
+                    @Param("checkedAts") OffsetDateTime[] checkedAts,
+                    @Param("nextCheckAts") OffsetDateTime[] nextCheckAts,
+                    @Param("leaseOwners") String[] leaseOwners);
+
+    //Reagenda o monitor (criação, troca de intervalo, reativação). Roda na transação de quem chamou
+    @Modifying
+    @Query(value = "UPDATE monitors SET next_check_at = :nextCheckAt WHERE id = :id", nativeQuery = true)
+    int scheduleNextCheck(@Param("id") Long id, @Param("nextCheckAt") OffsetDateTime nextCheckAt);
+
+    //Devolve o lease depois da verificação (só se ainda for deste nó)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE monitors SET lease_owner = NULL, lease_until = NULL WHERE id = :id AND lease_owner = :owner", nativeQuery = true)
+    int releaseLease(@Param("id") Long id, @Param("owner") String owner);
+
+    //Devolve todos os leases do nó (desligamento), para outro nó assumir sem esperar expirar
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE monitors SET lease_owner = NULL, lease_until = NULL WHERE lease_owner = :owner", nativeQuery = true)
+    int releaseAllLeases(@Param("owner") String owner);
 }
@@ -0,0 +1,151 @@
+package com.jadeproject.backend.rollup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/*Agregação contínua do histórico em rollups de 1 minuto, 1 hora e 1 dia.
+*
+*   monitor_history --(a cada minuto completo)--> monitor_rollup_1m --(hora completa)--> monitor_rollup_1h --(dia)--> monitor_rollup_1d
+*
+* INCREMENTAL: cada granularidade tem uma marca d'água (rollup_watermark) dizendo até onde já foi agregada.
+* Cada rodada só lê o que está entre a marca e o último balde COMPLETO, grava os baldes e avança a marca na MESMA
+* transação. Nada é relido: se a transação falhar, a marca não anda e a rodada seguinte refaz o mesmo trecho.
+*
+* ATRASO (lag-seconds): uma verificação só chega ao banco depois da fila do MonitorHistoryWriter, então um minuto só é
+* considerado completo lag-seconds depois de terminar. Linhas que chegarem depois disso ficam fora do rollup.
+*
+* Runs do modo STATE_CHANGE (monitor_history_run) entram direto no balde de 1 hora: o de 1 minuto desses monitores
+* só enxerga as mudanças de status (ver MonitorRollupService.chooseGranularity).
+*
+* Retenção: os rollups finos são apagados depois de N dias (os de 1 dia ficam para sempre),
+* mas nunca antes de terem sido agregados na granularidade seguinte.*/
+@Slf4j
+@Component
+public class MonitorRollupJob {
+
+    //Quantos baldes cada transação agrega no máximo (limita memória e duração da transação ao recuperar atraso)
+    private static final int MINUTES_PER_TRANSACTION = 10;
+
+    private final RollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lag;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+
+    public MonitorRollupJob(RollupRepository rollupRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${jade.rollup.lag-seconds:60}") long lagSeconds,
+                            @Value("${jade.rollup.retention.minute-days:7}") long minuteRetentionDays,
+                            @Value("${jade.rollup.retention.hour-days:90}") long hourRetentionDays) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.lag = Duration.ofSeconds(lagSeconds);
+        this.minuteRetention = Duration.ofDays(minuteRetentionDays);
+        this.hourRetention = Duration.ofDays(hourRetentionDays);
+    }
+
+    @Scheduled(initialDelayString = "${jade.rollup.interval-ms:60000}", fixedDelayString = "${jade.rollup.interval-ms:60000}")
+    public void run() {
+        try {
+            Instant completeUntil = RollupGranularity.MINUTE.bucketStart(Instant.now().minus(lag));
+            //Cada chamada processa um trecho; repete até alcançar o presente
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> rollupRaw(completeUntil)))) { }
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> rollup(RollupGranularity.HOUR, RollupGranularity.MINUTE)))) { }
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> rollup(RollupGranularity.DAY, RollupGranularity.HOUR)))) { }
+            purge();
+        } catch (RuntimeException e) {
+            log.error("Falha ao atualizar os rollups do histórico: ", e);
+        }
+    }
+
+    //Verificações brutas -> baldes de 1 minuto. Retorna true se ainda há trecho para processar
+    private boolean rollupRaw(Instant completeUntil) {
+        Instant from = rollupRepository.lockWatermark(RollupGranularity.MINUTE);
+        if (from == null) {
+            //Primeira execução: começa pela verificação mais antiga que existir
+            Instant oldest = rollupRepository.findOldestRawCheck();
+            from = oldest == null ? completeUntil : RollupGranularity.MINUTE.bucketStart(oldest);
+        }
+        if (!from.isBefore(completeUntil)) {
+            rollupRepository.saveWatermark(RollupGranularity.MINUTE, from);
+            return false;
+        }
+
+        Instant to = min(completeUntil, from.plus(RollupGranularity.MINUTE.bucketSize().multipliedBy(MINUTES_PER_TRANSACTION)));
+        Map<BucketKey, RollupBucket> buckets = new HashMap<>();
+        rollupRepository.forEachRawCheck(from, to, (monitorId, checkedAt, statusCode, latencyMs, success) -> {
+            Instant bucketStart = RollupGranularity.MINUTE.bucketStart(checkedAt);
+            buckets.computeIfAbsent(new BucketKey(monitorId, bucketStart), key -> new RollupBucket(monitorId, bucketStart))
+                    .addCheck(statusCode, latencyMs, success);
+        });
+
+        rollupRepository.insert(RollupGranularity.MINUTE, buckets.values());
+        rollupRepository.saveWatermark(RollupGranularity.MINUTE, to);
+        return to.isBefore(completeUntil);
+    }
+
+    //Baldes de 'source' -> UM balde de 'target' (ex: 60 minutos -> 1 hora). Retorna true se ainda há trecho para processar
+    private boolean rollup(RollupGranularity target, RollupGranularity source) {
+        Instant sourceWatermark = rollupRepository.findWatermark(source);
+        if (sourceWatermark == null) {
+            return false;
+        }
+        //Só agrega baldes de 'target' cujo período inteiro já foi agregado em 'source'
+        Instant completeUntil = target.bucketStart(sourceWatermark);
+
+        Instant from = rollupRepository.lockWatermark(target);
+        if (from == null) {
+            Instant oldest = rollupRepository.findOldestBucket(source);
+            from = oldest == null ? completeUntil : target.bucketStart(oldest);
+        }
+        if (!from.isBefore(completeUntil)) {
+            rollupRepository.saveWatermark(target, from);
+            return false;
+        }
+
+        Instant to = from.plus(target.bucketSize());
+        Instant bucketStart = from;
+        Map<Long, RollupBucket> buckets = new HashMap<>();
+        rollupRepository.forEachBucket(source, from, to, bucket ->
+                buckets.computeIfAbsent(bucket.getMonitorId(), monitorId -> new RollupBucket(monitorId, bucketStart))
+                        .merge(bucket));
+        if (target == RollupGranularity.HOUR) {
+            //As verificações repetidas do modo STATE_CHANGE não passam pelos baldes de 1 minuto
+            rollupRepository.forEachRun(from, to, run ->
+                    buckets.computeIfAbsent(run.getMonitorId(), monitorId -> new RollupBucket(monitorId, bucketStart))
+                            .merge(run));
+        }
+
+        rollupRepository.insert(target, buckets.values());
+        rollupRepository.saveWatermark(target, to);
+        return to.isBefore(completeUntil);
+    }
+
+    //Retenção dos rollups finos. Nunca apaga o que ainda não foi agregado na granularidade seguinte
+    private void purge() {
+        Instant now = Instant.now();
+        Instant hourWatermark = rollupRepository.findWatermark(RollupGranularity.HOUR);
+        if (hourWatermark != null) {
+            rollupRepository.deleteOlderThan(RollupGranularity.MINUTE, min(now.minus(minuteRetention), hourWatermark));
+        }
+        Instant dayWatermark = rollupRepository.findWatermark(RollupGranularity.DAY);
+        if (dayWatermark != null) {
+            rollupRepository.deleteOlderThan(RollupGranularity.HOUR, min(now.minus(hourRetention), dayWatermark));
+        }
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private record BucketKey(long monitorId, Instant bucketStart) {
+    }
+}
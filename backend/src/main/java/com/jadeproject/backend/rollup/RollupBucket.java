@@ -0,0 +1,89 @@
+package com.jadeproject.backend.rollup;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/*Agregado de UM monitor em UM balde de tempo (uma linha de monitor_rollup_1m/1h/1d).
+* Latência só conta verificações que tiveram resposta HTTP (statusCode > 0): um timeout de 3s não é "latência",
+* é falta de resposta, e distorceria a média e os percentis. Por isso latencyCount pode ser menor que checkCount.*/
+@Getter
+public class RollupBucket {
+
+    private final long monitorId;
+    private final Instant bucketStart;
+    private int checkCount;
+    private int successCount;
+    private int latencyCount;
+    private Integer latencyMin;
+    private Integer latencyMax;
+    private long latencySum;
+    private final LatencySketch sketch;
+
+    public RollupBucket(long monitorId, Instant bucketStart) {
+        this(monitorId, bucketStart, new LatencySketch());
+    }
+
+    RollupBucket(long monitorId, Instant bucketStart, LatencySketch sketch) {
+        this.monitorId = monitorId;
+        this.bucketStart = bucketStart;
+        this.sketch = sketch;
+    }
+
+    //Recria um balde lido do banco
+    public static RollupBucket of(long monitorId, Instant bucketStart, int checkCount, int successCount,
+                                  int latencyCount, Integer latencyMin, Integer latencyMax, long latencySum,
+                                  byte[] sketchBytes) {
+        RollupBucket bucket = new RollupBucket(monitorId, bucketStart, LatencySketch.fromBytes(sketchBytes));
+        bucket.checkCount = checkCount;
+        bucket.successCount = successCount;
+        bucket.latencyCount = latencyCount;
+        bucket.latencyMin = latencyMin;
+        bucket.latencyMax = latencyMax;
+        bucket.latencySum = latencySum;
+        return bucket;
+    }
+
+    //Uma verificação bruta
+    public void addCheck(Integer statusCode, Integer latencyMs, boolean success) {
+        checkCount++;
+        if (success) {
+            successCount++;
+        }
+        if (statusCode != null && statusCode > 0 && latencyMs != null) {
+            latencyCount++;
+            latencySum += latencyMs;
+            latencyMin = latencyMin == null ? latencyMs : Math.min(latencyMin, latencyMs);
+            latencyMax = latencyMax == null ? latencyMs : Math.max(latencyMax, latencyMs);
+            sketch.add(latencyMs);
+        }
+    }
+
+    //Junta um balde menor (ex: um minuto dentro da hora)
+    public void merge(RollupBucket other) {
+        checkCount += other.checkCount;
+        successCount += other.successCount;
+        latencyCount += other.latencyCount;
+        latencySum += other.latencySum;
+        if (other.latencyMin != null) {
+            latencyMin = latencyMin == null ? other.latencyMin : Math.min(latencyMin, other.latencyMin);
+        }
+        if (other.latencyMax != null) {
+            latencyMax = latencyMax == null ? other.latencyMax : Math.max(latencyMax, other.latencyMax);
+        }
+        sketch.merge(other.sketch);
+    }
+
+    public Double getLatencyAvg() {
+        return latencyCount == 0 ? null : (double) latencySum / latencyCount;
+    }
+
+    //Percentil limitado pelo mínimo e máximo reais (o sketch só sabe o balde, não o valor exato)
+    public Integer latencyQuantile(double q) {
+        Integer estimate = sketch.quantile(q);
+        if (estimate == null) {
+            return null;
+        }
+        return Math.max(latencyMin, Math.min(latencyMax, estimate));
+    }
+}
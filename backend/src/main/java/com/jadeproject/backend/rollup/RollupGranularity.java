@@ -0,0 +1,33 @@
+package com.jadeproject.backend.rollup;
+
+import java.time.Duration;
+import java.time.Instant;
+
+//Resoluções dos rollups do histórico. Cada uma tem sua tabela (ver migração V8)
+public enum RollupGranularity {
+    MINUTE("monitor_rollup_1m", Duration.ofMinutes(1)),
+    HOUR("monitor_rollup_1h", Duration.ofHours(1)),
+    DAY("monitor_rollup_1d", Duration.ofDays(1));
+
+    private final String table;
+    private final Duration bucketSize;
+
+    RollupGranularity(String table, Duration bucketSize) {
+        this.table = table;
+        this.bucketSize = bucketSize;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public Duration bucketSize() {
+        return bucketSize;
+    }
+
+    //Início do balde que contém 'instant' (em UTC: o balde diário começa à meia-noite UTC)
+    public Instant bucketStart(Instant instant) {
+        long size = bucketSize.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(instant.toEpochMilli(), size) * size);
+    }
+}
@@ -0,0 +1,202 @@
+package com.jadeproject.backend.rollup;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*Acesso às tabelas de rollup (monitor_rollup_1m/1h/1d) e à marca d'água (rollup_watermark). Ver migração V8.
+* Usa JdbcTemplate em vez de JPA: são três tabelas com o mesmo formato, lidas e gravadas em volume,
+* e a tabela é escolhida em tempo de execução (RollupGranularity.table()).*/
+@Repository
+public class RollupRepository {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String RUN_SELECT = """
+            SELECT monitor_id, started_at, is_successful, check_count, latency_count,
+                   latency_min, latency_max, latency_sum, latency_sketch
+            FROM monitor_history_run""";
+
+    private final JdbcTemplate jdbcTemplate;
+    //Cópia com fetchSize: dentro de uma transação, o driver traz as linhas aos poucos em vez de tudo de uma vez
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public RollupRepository(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    //--- Marca d'água: até onde (exclusivo) os dados já foram agregados ---
+
+    //FOR UPDATE: só um nó por vez processa cada granularidade (os outros esperam e depois encontram o trabalho feito)
+    public Instant lockWatermark(RollupGranularity granularity) {
+        Timestamp value = jdbcTemplate.queryForObject(
+                "SELECT processed_until FROM rollup_watermark WHERE granularity = ? FOR UPDATE",
+                Timestamp.class, granularity.name());
+        return value == null ? null : value.toInstant();
+    }
+
+    public Instant findWatermark(RollupGranularity granularity) {
+        Timestamp value = jdbcTemplate.queryForObject(
+                "SELECT processed_until FROM rollup_watermark WHERE granularity = ?",
+                Timestamp.class, granularity.name());
+        return value == null ? null : value.toInstant();
+    }
+
+    public void saveWatermark(RollupGranularity granularity, Instant processedUntil) {
+        jdbcTemplate.update("UPDATE rollup_watermark SET processed_until = ? WHERE granularity = ?",
+                Timestamp.from(processedUntil), granularity.name());
+    }
+
+    //--- Leitura das fontes ---
+
+    public Instant findOldestRawCheck() {
+        Timestamp value = jdbcTemplate.queryForObject("SELECT min(checked_at) FROM monitor_history", Timestamp.class);
+        return value == null ? null : value.toInstant();
+    }
+
+    public Instant findOldestBucket(RollupGranularity granularity) {
+        Timestamp value = jdbcTemplate.queryForObject(
+                "SELECT min(bucket_start) FROM " + granularity.table(), Timestamp.class);
+        return value == null ? null : value.toInstant();
+    }
+
+    //Percorre as verificações brutas de [from, to) sem carregar tudo em memória
+    public void forEachRawCheck(Instant from, Instant to, RawCheckHandler handler) {
+        streamingJdbcTemplate.query("""
+                        SELECT monitor_id, checked_at, status_code, latency_ms, is_successful
+                        FROM monitor_history
+                        WHERE checked_at >= ? AND checked_at < ?
+                        """,
+                (RowCallbackHandler) rs -> {
+                    handler.handle(rs.getLong("monitor_id"),
+                            rs.getTimestamp("checked_at").toInstant(),
+                            (Integer) rs.getObject("status_code"),
+                            (Integer) rs.getObject("latency_ms"),
+                            rs.getBoolean("is_successful"));
+                },
+                Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //Verificações brutas de UM monitor em [from, to) (resumo do período: só as pontas que os rollups não cobrem)
+    public void forEachRawCheck(long monitorId, Instant from, Instant to, RawCheckHandler handler) {
+        jdbcTemplate.query("""
+                        SELECT checked_at, status_code, latency_ms, is_successful
+                        FROM monitor_history
+                        WHERE monitor_id = ? AND checked_at >= ? AND checked_at < ?
+                        """,
+                (RowCallbackHandler) rs -> {
+                    handler.handle(monitorId,
+                            rs.getTimestamp("checked_at").toInstant(),
+                            (Integer) rs.getObject("status_code"),
+                            (Integer) rs.getObject("latency_ms"),
+                            rs.getBoolean("is_successful"));
+                },
+                monitorId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //Runs de UM monitor com início em [from, to)
+    public void forEachRun(long monitorId, Instant from, Instant to, Consumer<RollupBucket> consumer) {
+        jdbcTemplate.query(RUN_SELECT + " WHERE monitor_id = ? AND started_at >= ? AND started_at < ?",
+                (RowCallbackHandler) rs -> {
+                    consumer.accept(mapRun(rs));
+                },
+                monitorId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //Runs do modo STATE_CHANGE (V10) com início em [from, to), já como baldes de 1 hora (um run nunca atravessa a hora)
+    public void forEachRun(Instant from, Instant to, Consumer<RollupBucket> consumer) {
+        streamingJdbcTemplate.query(RUN_SELECT + " WHERE started_at >= ? AND started_at < ?",
+                (RowCallbackHandler) rs -> {
+                    consumer.accept(mapRun(rs));
+                },
+                Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //Percorre os baldes de TODOS os monitores com início em [from, to)
+    public void forEachBucket(RollupGranularity granularity, Instant from, Instant to, Consumer<RollupBucket> consumer) {
+        streamingJdbcTemplate.query("SELECT * FROM " + granularity.table() + " WHERE bucket_start >= ? AND bucket_start < ?",
+                (RowCallbackHandler) rs -> {
+                    consumer.accept(mapBucket(rs));
+                },
+                Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //Baldes de UM monitor, em ordem cronológica (usa a PK (monitor_id, bucket_start))
+    public List<RollupBucket> findBuckets(RollupGranularity granularity, long monitorId, Instant from, Instant to) {
+        return jdbcTemplate.query("SELECT * FROM " + granularity.table()
+                        + " WHERE monitor_id = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start",
+                (rs, rowNum) -> mapBucket(rs),
+                monitorId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    //--- Escrita ---
+
+    //O EXISTS pula baldes de monitores excluídos enquanto o rollup rodava (senão a FK derrubaria o lote inteiro)
+    public void insert(RollupGranularity granularity, Collection<RollupBucket> buckets) {
+        String sql = "INSERT INTO " + granularity.table() + """
+                 (monitor_id, bucket_start, check_count, success_count, latency_count,
+                  latency_min, latency_max, latency_sum, latency_sketch)
+                SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?
+                WHERE EXISTS (SELECT 1 FROM monitors WHERE id = ?)
+                """;
+        jdbcTemplate.batchUpdate(sql, buckets, 500, (ps, bucket) -> {
+            ps.setLong(1, bucket.getMonitorId());
+            ps.setTimestamp(2, Timestamp.from(bucket.getBucketStart()));
+            ps.setInt(3, bucket.getCheckCount());
+            ps.setInt(4, bucket.getSuccessCount());
+            ps.setInt(5, bucket.getLatencyCount());
+            ps.setObject(6, bucket.getLatencyMin(), Types.INTEGER);
+            ps.setObject(7, bucket.getLatencyMax(), Types.INTEGER);
+            ps.setLong(8, bucket.getLatencySum());
+            ps.setBytes(9, bucket.getSketch().toBytes());
+            ps.setLong(10, bucket.getMonitorId());
+        });
+    }
+
+    public int deleteOlderThan(RollupGranularity granularity, Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + granularity.table() + " WHERE bucket_start < ?", Timestamp.from(cutoff));
+    }
+
+    private static RollupBucket mapRun(ResultSet rs) throws SQLException {
+        int checkCount = rs.getInt("check_count");
+        return RollupBucket.of(
+                rs.getLong("monitor_id"),
+                RollupGranularity.HOUR.bucketStart(rs.getTimestamp("started_at").toInstant()),
+                checkCount,
+                rs.getBoolean("is_successful") ? checkCount : 0,
+                rs.getInt("latency_count"),
+                (Integer) rs.getObject("latency_min"),
+                (Integer) rs.getObject("latency_max"),
+                rs.getLong("latency_sum"),
+                rs.getBytes("latency_sketch"));
+    }
+
+    private static RollupBucket mapBucket(ResultSet rs) throws SQLException {
+        return RollupBucket.of(
+                rs.getLong("monitor_id"),
+                rs.getTimestamp("bucket_start").toInstant(),
+                rs.getInt("check_count"),
+                rs.getInt("success_count"),
+                rs.getInt("latency_count"),
+                (Integer) rs.getObject("latency_min"),
+                (Integer) rs.getObject("latency_max"),
+                rs.getLong("latency_sum"),
+                rs.getBytes("latency_sketch"));
+    }
+
+    @FunctionalInterface
+    public interface RawCheckHandler {
+        void handle(long monitorId, Instant checkedAt, Integer statusCode, Integer latencyMs, boolean success);
+    }
+}
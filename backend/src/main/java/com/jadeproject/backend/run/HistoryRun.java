@@ -0,0 +1,42 @@
+package com.jadeproject.backend.run;
+
+import com.jadeproject.backend.rollup.RollupBucket;
+import com.jadeproject.backend.rollup.RollupGranularity;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/*Um run: verificações SEGUIDAS de um monitor com o mesmo status, dentro de UMA hora (uma linha de monitor_history_run).
+* A latência é acumulada num RollupBucket (contagem, mín/máx/soma e sketch), o mesmo formato dos rollups:
+* como o run nunca atravessa uma hora, o rollup de 1 hora soma o run inteiro no balde certo.*/
+@Getter
+public class HistoryRun {
+
+    private final long monitorId;
+    private final Instant stateSince; //checked_at da linha completa que abriu este estado
+    private final Instant startedAt;
+    private Instant endedAt;
+    private final int statusCode;
+    private final boolean successful;
+    private final RollupBucket stats;
+
+    HistoryRun(long monitorId, Instant stateSince, Instant startedAt, int statusCode, boolean successful) {
+        this.monitorId = monitorId;
+        this.stateSince = stateSince;
+        this.startedAt = startedAt;
+        this.endedAt = startedAt;
+        this.statusCode = statusCode;
+        this.successful = successful;
+        this.stats = new RollupBucket(monitorId, RollupGranularity.HOUR.bucketStart(startedAt));
+    }
+
+    void addCheck(Instant checkedAt, Integer latencyMs) {
+        endedAt = checkedAt;
+        stats.addCheck(statusCode, latencyMs, successful);
+    }
+
+    //Runs não atravessam a hora (ver MonitorRollupJob)
+    boolean covers(Instant checkedAt) {
+        return stats.getBucketStart().equals(RollupGranularity.HOUR.bucketStart(checkedAt));
+    }
+}
@@ -0,0 +1,89 @@
+package com.jadeproject.backend.run;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+//Acesso à tabela monitor_history_run (migração V10)
+@Repository
+public class HistoryRunRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HistoryRunRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*Grava os runs com os totais que estão em memória: um run aberto é regravado a cada flush em que recebe verificações.
+    * Sobrescreve em vez de somar porque o sketch de latência não tem como ser somado em SQL.
+    * O EXISTS pula monitores excluídos enquanto o run estava em memória (senão a FK derrubaria o lote inteiro).*/
+    public void upsert(Collection<HistoryRun> runs) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO monitor_history_run
+                            (monitor_id, started_at, ended_at, state_since, status_code, is_successful, check_count,
+                             latency_count, latency_min, latency_max, latency_sum, latency_sketch)
+                        SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?
+                        WHERE EXISTS (SELECT 1 FROM monitors WHERE id = ?)
+                        ON CONFLICT (monitor_id, started_at) DO UPDATE SET
+                            ended_at = EXCLUDED.ended_at,
+                            check_count = EXCLUDED.check_count,
+                            latency_count = EXCLUDED.latency_count,
+                            latency_min = EXCLUDED.latency_min,
+                            latency_max = EXCLUDED.latency_max,
+                            latency_sum = EXCLUDED.latency_sum,
+                            latency_sketch = EXCLUDED.latency_sketch
+                        """,
+                new ArrayList<>(runs), 500, (ps, run) -> {
+                    ps.setLong(1, run.getMonitorId());
+                    ps.setTimestamp(2, Timestamp.from(run.getStartedAt()));
+                    ps.setTimestamp(3, Timestamp.from(run.getEndedAt()));
+                    ps.setTimestamp(4, Timestamp.from(run.getStateSince()));
+                    ps.setInt(5, run.getStatusCode());
+                    ps.setBoolean(6, run.isSuccessful());
+                    ps.setInt(7, run.getStats().getCheckCount());
+                    ps.setInt(8, run.getStats().getLatencyCount());
+                    ps.setObject(9, run.getStats().getLatencyMin(), Types.INTEGER);
+                    ps.setObject(10, run.getStats().getLatencyMax(), Types.INTEGER);
+                    ps.setLong(11, run.getStats().getLatencySum());
+                    ps.setBytes(12, run.getStats().getSketch().toBytes());
+                    ps.setLong(13, run.getMonitorId());
+                });
+    }
+
+    //Repetições de cada linha do monitor com checked_at em [from, to], indexadas pelo checked_at da linha (state_since)
+    public Map<Instant, HistoryRunSummary> findSummaries(long monitorId, Instant from, Instant to) {
+        Map<Instant, HistoryRunSummary> summaries = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT state_since, sum(check_count) AS check_count, max(ended_at) AS ended_at,
+                               min(latency_min) AS latency_min, max(latency_max) AS latency_max,
+                               sum(latency_sum) AS latency_sum, sum(latency_count) AS latency_count
+                        FROM monitor_history_run
+                        WHERE monitor_id = ? AND state_since >= ? AND state_since <= ?
+                        GROUP BY state_since
+                        """,
+                (RowCallbackHandler) rs -> {
+                    long latencyCount = rs.getLong("latency_count");
+                    summaries.put(rs.getTimestamp("state_since").toInstant(), new HistoryRunSummary(
+                            rs.getInt("check_count"),
+                            rs.getTimestamp("ended_at").toInstant().atOffset(ZoneOffset.UTC),
+                            (Integer) rs.getObject("latency_min"),
+                            (Integer) rs.getObject("latency_max"),
+                            latencyCount == 0 ? null : (double) rs.getLong("latency_sum") / latencyCount));
+                },
+                monitorId, Timestamp.from(from), Timestamp.from(to));
+        return summaries;
+    }
+
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM monitor_history_run WHERE started_at < ?", Timestamp.from(cutoff));
+    }
+}
@@ -0,0 +1,8 @@
+package com.jadeproject.backend.run;
+
+import java.time.OffsetDateTime;
+
+//Todas as repetições que vieram depois de UMA linha de monitor_history (a soma dos runs com o mesmo state_since)
+public record HistoryRunSummary(int checkCount, OffsetDateTime endedAt,
+                                Integer latencyMin, Integer latencyMax, Double latencyAvg) {
+}
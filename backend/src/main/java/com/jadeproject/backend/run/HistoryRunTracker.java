@@ -0,0 +1,92 @@
+package com.jadeproject.backend.run;
+
+import com.jadeproject.backend.event.MonitorChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Estado em memória do modo STATE_CHANGE (Monitor.storageMode): o último status gravado de cada monitor e o run aberto.
+* Usado pela thread do MonitorHistoryWriter, na ordem em que as verificações entraram na fila:
+*   - Status diferente do anterior (ou monitor ainda sem estado) -> a verificação vira linha completa em monitor_history;
+*   - Mesmo status -> a verificação só soma no run aberto (que é regravado no próximo flush, ver dirtyRuns).
+* Depois de um restart o estado está vazio: a primeira verificação de cada monitor vira linha completa de novo.
+*
+* Modo cluster: desligado. Cada verificação pode cair num nó diferente e o estado local de um nó não veria as
+* mudanças de status gravadas pelos outros. Nesse modo todos os monitores gravam como FULL.*/
+@Component
+public class HistoryRunTracker {
+
+    private final boolean enabled;
+    //ConcurrentHashMap só por causa do onMonitorChanged; o resto roda na thread do writer
+    private final Map<Long, State> states = new ConcurrentHashMap<>();
+    private final Set<HistoryRun> dirtyRuns = new LinkedHashSet<>(); //Identidade do objeto: um run aparece uma vez só
+
+    private static final class State {
+        private final int statusCode;
+        private final boolean successful;
+        private final Instant since;
+        private HistoryRun run;
+
+        private State(int statusCode, boolean successful, Instant since) {
+            this.statusCode = statusCode;
+            this.successful = successful;
+            this.since = since;
+        }
+    }
+
+    public HistoryRunTracker(@Value("${jade.scheduler.cluster.enabled:false}") boolean clusterEnabled) {
+        this.enabled = !clusterEnabled;
+    }
+
+    //Retorna true se a verificação foi absorvida por um run (e NÃO deve virar linha em monitor_history)
+    public boolean absorb(long monitorId, Instant checkedAt, int statusCode, Integer latencyMs, boolean successful) {
+        if (!enabled) {
+            return false;
+        }
+        State state = states.get(monitorId);
+        if (state == null || state.statusCode != statusCode || state.successful != successful) {
+            //Mudou o status: abre um estado novo (sem run ainda)
+            states.put(monitorId, new State(statusCode, successful, checkedAt));
+            return false;
+        }
+
+        HistoryRun run = state.run;
+        if (run == null || !run.covers(checkedAt)) {
+            //Primeira repetição do estado ou virou a hora: run novo
+            run = new HistoryRun(monitorId, state.since, checkedAt, statusCode, successful);
+            state.run = run;
+        }
+        run.addCheck(checkedAt, latencyMs);
+        dirtyRuns.add(run);
+        return true;
+    }
+
+    //Monitor gravando como FULL: esquece o estado (se voltar para STATE_CHANGE, começa com uma linha completa)
+    public void forget(long monitorId) {
+        states.remove(monitorId);
+    }
+
+    //Runs alterados desde o último clearDirtyRuns
+    public Collection<HistoryRun> dirtyRuns() {
+        return dirtyRuns;
+    }
+
+    //Chamar só depois de gravar os runs (se a gravação falhar, eles são regravados no próximo flush)
+    public void clearDirtyRuns() {
+        dirtyRuns.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMonitorChanged(MonitorChangedEvent event) {
+        if (event.type() == MonitorChangedEvent.ChangeType.DELETED) {
+            states.remove(event.monitorId());
+        }
+    }
+}
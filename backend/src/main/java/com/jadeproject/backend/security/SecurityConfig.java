@@ -1,5 +1,6 @@
 package com.jadeproject.backend.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -29,6 +30,10 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> authorize
+                        //Fim de uma resposta assíncrona (ex: exportação do histórico, stream SSE de /live).
+                        //A requisição original já passou pela autorização; o SecurityFilter não roda de novo nesse despacho
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         //--- 0. SWAGGER / OPENAPI (DOCS) ---
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
 
@@ -36,6 +41,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                         .requestMatchers(HttpMethod.POST, "/users").permitAll() //Cadastro de usuários
                         .requestMatchers("/fantoche/**").permitAll() //Monitores de teste
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll() //Health check (load balancer)
 
                         //--- 2. ÁREA RESTRITA DO ADMIN ---
                         .requestMatchers(HttpMethod.GET, "/users").hasAuthority("ROLE_ADMIN")
@@ -43,12 +49,15 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/monitors").hasAuthority("ROLE_ADMIN")
                         //Busca inteligente (query parameter)
                         .requestMatchers(HttpMethod.GET, "/users/search").hasAuthority("ROLE_ADMIN")
+                        //Métricas internas (filas por host, etc.)
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
 
                         //--- 3. ROTAS DE USO COMUM (User & Admin) ---
                         //Todos autenticados podem tentar. O Controller verifica se o ID bate
                         .requestMatchers("/monitors/**").authenticated()
                         .requestMatchers("/history/**").authenticated()
                         .requestMatchers("/incidents/**").authenticated()
+                        .requestMatchers("/live/**").authenticated() //Stream SSE: cada usuário só recebe os próprios monitores
 
                         //Qualquer outra coisa (incluindo PUT e GET /users/{id}) exige autenticação
                         .anyRequest().authenticated()
@@ -0,0 +1,249 @@
+package com.jadeproject.backend.segment;
+
+import com.jadeproject.backend.model.Monitor;
+import com.jadeproject.backend.model.MonitorHistory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*Codificação COLUNAR e comprimida de um segmento (as verificações de UM monitor em UM dia).
+* Em vez de guardar linha a linha (~60 bytes + ~24 de cabeçalho de tupla cada), cada coluna é gravada inteira,
+* do jeito que ela mais se repete:
+*   - id e latência: diferença para o valor anterior (delta) em zigzag-varint. IDs quase sequenciais e latências
+*     parecidas viram 1 byte cada;
+*   - checked_at: delta-of-delta. Um monitor de 60s gera deltas ~60s, então a diferença ENTRE deltas é ~0 (1 byte);
+*   - status_code e is_successful: run-length (valor, repetições). Um dia inteiro de "200, true" vira 2 pares;
+*   - dns/connect/tls/request: varint (quase sempre nulos ou pequenos).
+* No fim, o bloco inteiro passa pelo Deflate. Valores nulos são gravados como 0 e os demais como valor + 1.
+*
+* As linhas precisam estar em ordem de checked_at (crescente). decode devolve na mesma ordem.*/
+public final class HistorySegmentCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private HistorySegmentCodec() {
+    }
+
+    public static byte[] encode(List<MonitorHistory> rows) {
+        Buffer out = new Buffer();
+        out.write(FORMAT_VERSION);
+        out.varint(rows.size());
+
+        //id: delta
+        long previousId = 0;
+        for (MonitorHistory row : rows) {
+            out.zigzag(row.getId() - previousId);
+            previousId = row.getId();
+        }
+
+        //checked_at (microssegundos): primeiro valor, primeiro delta e depois delta-of-delta
+        long previousTime = 0;
+        long previousDelta = 0;
+        for (MonitorHistory row : rows) {
+            long micros = toMicros(row.getCheckedAt());
+            long delta = micros - previousTime;
+            out.zigzag(delta - previousDelta);
+            previousDelta = delta;
+            previousTime = micros;
+        }
+
+        //status_code e is_successful: run-length
+        writeRuns(out, rows.stream().mapToLong(row -> nullable(row.getStatusCode())).toArray());
+        writeRuns(out, rows.stream().mapToLong(row -> row.getIsSuccessful() == null ? 0 : (row.getIsSuccessful() ? 2 : 1)).toArray());
+
+        //latência: delta
+        long previousLatency = 0;
+        for (MonitorHistory row : rows) {
+            long latency = nullable(row.getLatency());
+            out.zigzag(latency - previousLatency);
+            previousLatency = latency;
+        }
+
+        //fases: valor direto
+        for (MonitorHistory row : rows) {
+            out.varint(nullable(row.getDnsMs()));
+            out.varint(nullable(row.getConnectMs()));
+            out.varint(nullable(row.getTlsMs()));
+            out.varint(nullable(row.getRequestMs()));
+        }
+
+        return deflate(out.toByteArray());
+    }
+
+    //monitor: referência (só com o id) colocada em cada linha decodificada
+    public static List<MonitorHistory> decode(byte[] data, Monitor monitor) {
+        ByteBuffer in = ByteBuffer.wrap(inflate(data));
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Versão de segmento desconhecida: " + version);
+        }
+        int count = (int) readVarint(in);
+
+        List<MonitorHistory> rows = new ArrayList<>(count);
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            MonitorHistory row = new MonitorHistory();
+            row.setMonitor(monitor);
+            id += readZigzag(in);
+            row.setId(id);
+            rows.add(row);
+        }
+
+        long time = 0;
+        long delta = 0;
+        for (MonitorHistory row : rows) {
+            delta += readZigzag(in);
+            time += delta;
+            row.setCheckedAt(fromMicros(time));
+        }
+
+        long[] statusCodes = readRuns(in, count);
+        long[] successes = readRuns(in, count);
+        for (int i = 0; i < count; i++) {
+            rows.get(i).setStatusCode(toInteger(statusCodes[i]));
+            rows.get(i).setIsSuccessful(successes[i] == 0 ? null : successes[i] == 2);
+        }
+
+        long latency = 0;
+        for (MonitorHistory row : rows) {
+            latency += readZigzag(in);
+            row.setLatency(toInteger(latency));
+        }
+
+        for (MonitorHistory row : rows) {
+            row.setDnsMs(toInteger(readVarint(in)));
+            row.setConnectMs(toInteger(readVarint(in)));
+            row.setTlsMs(toInteger(readVarint(in)));
+            row.setRequestMs(toInteger(readVarint(in)));
+        }
+        return rows;
+    }
+
+    //--- Run-length: pares (valor, quantidade de repetições) ---
+
+    private static void writeRuns(Buffer out, long[] values) {
+        int i = 0;
+        while (i < values.length) {
+            int runEnd = i + 1;
+            while (runEnd < values.length && values[runEnd] == values[i]) {
+                runEnd++;
+            }
+            out.varint(values[i]);
+            out.varint(runEnd - i);
+            i = runEnd;
+        }
+    }
+
+    private static long[] readRuns(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        int i = 0;
+        while (i < count) {
+            long value = readVarint(in);
+            int run = (int) readVarint(in);
+            for (int n = 0; n < run; n++) {
+                values[i++] = value;
+            }
+        }
+        return values;
+    }
+
+    //--- Nulos: 0 = null, n = valor n - 1 ---
+
+    private static long nullable(Integer value) {
+        return value == null ? 0 : value + 1L;
+    }
+
+    private static Integer toInteger(long encoded) {
+        return encoded == 0 ? null : (int) (encoded - 1);
+    }
+
+    private static long toMicros(OffsetDateTime dateTime) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, dateTime.toInstant());
+    }
+
+    private static OffsetDateTime fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+
+    //--- Varint (7 bits por byte) e zigzag (negativos pequenos viram positivos pequenos: -1 -> 1, 1 -> 2) ---
+
+    private static long readVarint(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static long readZigzag(ByteBuffer in) {
+        long n = readVarint(in);
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void zigzag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+    }
+
+    //--- Deflate ---
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Segmento de histórico truncado.");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Segmento de histórico corrompido.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
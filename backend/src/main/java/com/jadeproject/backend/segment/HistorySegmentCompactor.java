@@ -0,0 +1,195 @@
+package com.jadeproject.backend.segment;
+
+import com.jadeproject.backend.model.MonitorHistory;
+import com.jadeproject.backend.rollup.RollupGranularity;
+import com.jadeproject.backend.rollup.RollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/*Camada FRIA do histórico: transforma as partições diárias antigas de monitor_history em segmentos comprimidos.
+*
+* Para cada partição com mais de cold.after-days dias (ver migração V7), numa única transação:
+*   1. Lê a partição inteira em ordem (monitor_id, checked_at), sem carregar tudo em memória;
+*   2. Cada monitor vira UM segmento (HistorySegmentCodec) gravado em monitor_history_segment;
+*   3. Apaga a partição com DROP TABLE, esperando no máx cold.lock-timeout-ms pelo lock.
+* Se algo falhar, nada muda e a partição é tentada de novo na próxima rodada.
+*
+* Por que o lock_timeout: o DROP pede ACCESS EXCLUSIVE. Enquanto ele espera uma leitura longa terminar, qualquer
+* lock novo na tabela entra na fila atrás dele, inclusive os INSERTs do histórico. Melhor desistir e tentar depois.
+*
+* A partição só é compactada depois que os rollups de 1 minuto já passaram por ela (eles leem as linhas brutas).
+* A retenção (jade.history.retention-days) passa a valer também para os segmentos.*/
+@Slf4j
+@Component
+public class HistorySegmentCompactor {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int INSERT_BATCH = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HistorySegmentRepository segmentRepository;
+    private final RollupRepository rollupRepository;
+    private final boolean enabled;
+    private final int coldAfterDays;
+    private final int retentionDays;
+    private final long lockTimeoutMs;
+
+    public HistorySegmentCompactor(JdbcTemplate jdbcTemplate,
+                                   DataSource dataSource,
+                                   TransactionTemplate transactionTemplate,
+                                   HistorySegmentRepository segmentRepository,
+                                   RollupRepository rollupRepository,
+                                   @Value("${jade.history.cold.enabled:true}") boolean enabled,
+                                   @Value("${jade.history.cold.after-days:7}") int coldAfterDays,
+                                   @Value("${jade.history.retention-days:90}") int retentionDays,
+                                   @Value("${jade.history.cold.lock-timeout-ms:3000}") long lockTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(1000);
+        this.transactionTemplate = transactionTemplate;
+        this.segmentRepository = segmentRepository;
+        this.rollupRepository = rollupRepository;
+        this.enabled = enabled;
+        this.coldAfterDays = coldAfterDays;
+        this.retentionDays = retentionDays;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    @Scheduled(initialDelayString = "${jade.history.cold.interval-ms:3600000}", fixedDelayString = "${jade.history.cold.interval-ms:3600000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            Instant rolledUpUntil = rollupRepository.findWatermark(RollupGranularity.MINUTE);
+
+            for (LocalDate day : findPartitionDays()) {
+                boolean oldEnough = day.isBefore(today.minusDays(coldAfterDays));
+                boolean rolledUp = rolledUpUntil != null
+                        && !rolledUpUntil.isBefore(day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+                if (oldEnough && rolledUp) {
+                    try {
+                        Integer segments = transactionTemplate.execute(status -> compactDay(day));
+                        log.info("Partição de {} do histórico compactada em {} segmentos.", day, segments);
+                    } catch (CannotAcquireLockException e) {
+                        //lock_timeout: a partição estava em uso. As próximas continuam, esta fica para a próxima rodada
+                        log.warn("Partição de {} do histórico em uso. Compactação adiada.", day);
+                    }
+                }
+            }
+
+            if (retentionDays > 0) {
+                segmentRepository.deleteOlderThan(today.minusDays(retentionDays));
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao compactar o histórico antigo: ", e);
+        }
+    }
+
+    //Dias das partições diárias que existem hoje (monitor_history_pYYYYMMDD), do mais antigo para o mais novo
+    private List<LocalDate> findPartitionDays() {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.relname
+                        FROM pg_inherits i
+                                 JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'monitor_history'::regclass
+                          AND c.relname ~ '^monitor_history_p[0-9]{8}$'
+                        ORDER BY c.relname
+                        """, String.class)
+                .stream()
+                .map(name -> LocalDate.parse(name.substring("monitor_history_p".length()), PARTITION_SUFFIX))
+                .toList();
+    }
+
+    private int compactDay(LocalDate day) {
+        //Mesmo lock das funções de partição: ninguém cria/apaga partições enquanto esta é compactada
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('monitor_history_partitions'))");
+        String partition = "monitor_history_p" + day.format(PARTITION_SUFFIX);
+
+        SegmentBuilder builder = new SegmentBuilder(day);
+        streamingJdbcTemplate.query("SELECT * FROM " + partition + " ORDER BY monitor_id, checked_at, id",
+                (RowCallbackHandler) rs -> {
+                    MonitorHistory row = new MonitorHistory();
+                    row.setId(rs.getLong("id"));
+                    row.setStatusCode((Integer) rs.getObject("status_code"));
+                    row.setLatency((Integer) rs.getObject("latency_ms"));
+                    row.setIsSuccessful((Boolean) rs.getObject("is_successful"));
+                    row.setCheckedAt(rs.getTimestamp("checked_at").toInstant().atOffset(ZoneOffset.UTC));
+                    row.setDnsMs((Integer) rs.getObject("dns_ms"));
+                    row.setConnectMs((Integer) rs.getObject("connect_ms"));
+                    row.setTlsMs((Integer) rs.getObject("tls_ms"));
+                    row.setRequestMs((Integer) rs.getObject("request_ms"));
+                    builder.add(rs.getLong("monitor_id"), row);
+                });
+        builder.finish();
+
+        //SET LOCAL: só até o fim desta transação (a conexão volta ao pool sem o timeout)
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        return builder.segmentCount;
+    }
+
+    //Junta as linhas de cada monitor (elas chegam agrupadas por monitor_id) e grava os segmentos em lotes
+    private class SegmentBuilder {
+        private final LocalDate day;
+        private final List<HistorySegmentRepository.NewSegment> pending = new ArrayList<>();
+        private List<MonitorHistory> rows = new ArrayList<>();
+        private long monitorId = -1;
+        private int segmentCount;
+
+        SegmentBuilder(LocalDate day) {
+            this.day = day;
+        }
+
+        void add(long rowMonitorId, MonitorHistory row) {
+            if (rowMonitorId != monitorId) {
+                closeSegment();
+                monitorId = rowMonitorId;
+            }
+            rows.add(row);
+        }
+
+        void finish() {
+            closeSegment();
+            flush();
+        }
+
+        private void closeSegment() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            pending.add(new HistorySegmentRepository.NewSegment(monitorId, day, rows.size(),
+                    rows.getFirst().getCheckedAt().toInstant(), rows.getLast().getCheckedAt().toInstant(),
+                    HistorySegmentCodec.encode(rows)));
+            segmentCount++;
+            rows = new ArrayList<>();
+            if (pending.size() >= INSERT_BATCH) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                segmentRepository.insert(pending);
+                pending.clear();
+            }
+        }
+    }
+}
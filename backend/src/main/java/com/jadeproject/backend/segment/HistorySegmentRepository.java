@@ -0,0 +1,78 @@
+package com.jadeproject.backend.segment;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+//Acesso à tabela monitor_history_segment (migração V9)
+@Repository
+public class HistorySegmentRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //Um segmento sem os dados (para paginar sem descomprimir nada)
+    public record SegmentInfo(LocalDate segmentDay, int rowCount) {
+    }
+
+    //Um segmento pronto para gravar
+    public record NewSegment(long monitorId, LocalDate segmentDay, int rowCount,
+                             Instant firstCheckedAt, Instant lastCheckedAt, byte[] data) {
+    }
+
+    public HistorySegmentRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    //Segmentos do monitor, do dia mais recente para o mais antigo
+    public List<SegmentInfo> findSegments(long monitorId) {
+        return jdbcTemplate.query(
+                "SELECT segment_day, row_count FROM monitor_history_segment WHERE monitor_id = ? ORDER BY segment_day DESC",
+                (rs, rowNum) -> new SegmentInfo(rs.getDate("segment_day").toLocalDate(), rs.getInt("row_count")),
+                monitorId);
+    }
+
+    //Dias com segmento do monitor em [fromDay, toDay], do mais antigo para o mais recente (exportação)
+    public List<LocalDate> findSegmentDays(long monitorId, LocalDate fromDay, LocalDate toDay) {
+        return jdbcTemplate.query("""
+                        SELECT segment_day FROM monitor_history_segment
+                        WHERE monitor_id = ? AND segment_day >= ? AND segment_day <= ?
+                        ORDER BY segment_day
+                        """,
+                (rs, rowNum) -> rs.getDate("segment_day").toLocalDate(),
+                monitorId, Date.valueOf(fromDay), Date.valueOf(toDay));
+    }
+
+    public byte[] findData(long monitorId, LocalDate segmentDay) {
+        return jdbcTemplate.queryForObject(
+                "SELECT data FROM monitor_history_segment WHERE monitor_id = ? AND segment_day = ?",
+                byte[].class, monitorId, Date.valueOf(segmentDay));
+    }
+
+    //O EXISTS pula monitores excluídos durante a compactação (senão a FK derrubaria o lote inteiro)
+    public void insert(List<NewSegment> segments) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO monitor_history_segment
+                            (monitor_id, segment_day, row_count, first_checked_at, last_checked_at, data)
+                        SELECT ?, ?, ?, ?, ?, ?
+                        WHERE EXISTS (SELECT 1 FROM monitors WHERE id = ?)
+                        """,
+                segments, 100, (ps, segment) -> {
+                    ps.setLong(1, segment.monitorId());
+                    ps.setDate(2, Date.valueOf(segment.segmentDay()));
+                    ps.setInt(3, segment.rowCount());
+                    ps.setTimestamp(4, Timestamp.from(segment.firstCheckedAt()));
+                    ps.setTimestamp(5, Timestamp.from(segment.lastCheckedAt()));
+                    ps.setBytes(6, segment.data());
+                    ps.setLong(7, segment.monitorId());
+                });
+    }
+
+    public int deleteOlderThan(LocalDate cutoffDay) {
+        return jdbcTemplate.update("DELETE FROM monitor_history_segment WHERE segment_day < ?", Date.valueOf(cutoffDay));
+    }
+}
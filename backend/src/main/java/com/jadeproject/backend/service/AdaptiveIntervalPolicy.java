@@ -0,0 +1,74 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.model.Monitor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Intervalo adaptativo: decide quando verificar de novo com base no estado do monitor.
+*   - Saudável: segue o intervalo configurado (na grade do ScheduleJitter);
+*   - Acabou de falhar: verifica de novo logo (recheck-seconds), para confirmar a queda e perceber a volta rápido;
+*   - Continua falhando: dobra a espera a cada falha (backoff exponencial) até max-backoff-seconds,
+*     para não gastar verificações com um alvo que já sabemos que está morto;
+*   - Voltou: retorna para o intervalo configurado.
+* Desligado (padrão), o intervalo é sempre o configurado no monitor.
+*
+* Modo cluster: sempre desligado. As falhas seguidas ficam só na memória do nó, e cada verificação pode cair num
+* nó diferente: o backoff recomeçaria do zero a cada troca de nó e a agenda gravada (next_check_at) dependeria de
+* qual nó fez a verificação.*/
+@Slf4j
+@Component
+public class AdaptiveIntervalPolicy {
+
+    private final boolean enabled;
+    private final long recheckSeconds;
+    private final long maxBackoffSeconds;
+
+    //Falhas consecutivas por monitor. Monitor saudável não tem entrada no mapa.
+    private final ConcurrentHashMap<Long, Integer> consecutiveFailures = new ConcurrentHashMap<>();
+
+    public AdaptiveIntervalPolicy(@Value("${jade.scheduler.adaptive.enabled:false}") boolean enabled,
+                                  @Value("${jade.scheduler.adaptive.recheck-seconds:15}") long recheckSeconds,
+                                  @Value("${jade.scheduler.adaptive.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                                  @Value("${jade.scheduler.cluster.enabled:false}") boolean clusterEnabled) {
+        if (enabled && clusterEnabled) {
+            log.warn("jade.scheduler.adaptive.enabled ignorado: o intervalo adaptativo não funciona no modo cluster.");
+        }
+        this.enabled = enabled && !clusterEnabled;
+        this.recheckSeconds = recheckSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+
+    public void recordResult(Long monitorId, boolean isUp) {
+        if (!enabled) {
+            return;
+        }
+        if (isUp) {
+            consecutiveFailures.remove(monitorId);
+        } else {
+            consecutiveFailures.merge(monitorId, 1, Integer::sum);
+        }
+    }
+
+    public void forget(Long monitorId) {
+        consecutiveFailures.remove(monitorId);
+    }
+
+    //Próxima verificação depois de uma execução que estava agendada para 'scheduledAt'
+    public Instant nextDue(Monitor monitor, Instant scheduledAt, Instant now) {
+        Integer failures = enabled ? consecutiveFailures.get(monitor.getId()) : null;
+        if (failures == null) {
+            return ScheduleJitter.nextDueAfterRun(monitor, scheduledAt, now);
+        }
+
+        //recheck, 2*recheck, 4*recheck... (o shift é limitado para não estourar o long)
+        long backoffSeconds = recheckSeconds << Math.min(failures - 1, 20);
+        //O teto nunca fica abaixo do intervalo configurado: o adaptativo não pode verificar MENOS do que o usuário pediu
+        //por causa de um teto pequeno, só espaçar mais enquanto o alvo está fora
+        long capSeconds = Math.max(monitor.getIntervalSeconds(), maxBackoffSeconds);
+        return now.plusSeconds(Math.min(backoffSeconds, capSeconds));
+    }
+}
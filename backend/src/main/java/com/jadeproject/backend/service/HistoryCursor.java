@@ -0,0 +1,41 @@
+package com.jadeproject.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/*Posição na paginação por cursor do histórico: a última linha entregue, pela chave (checked_at, id).
+* A próxima página começa logo DEPOIS dela na ordem (checked_at DESC, id DESC), então não há OFFSET para percorrer.
+* Para o cliente é só uma string opaca (Base64 de "microssegundos:id"): ele devolve o nextCursor sem interpretar.*/
+public record HistoryCursor(OffsetDateTime checkedAt, long id) {
+
+    public String encode() {
+        Instant instant = checkedAt.toInstant();
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+        String raw = micros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    //IllegalArgumentException se o cursor não foi gerado por encode
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = raw.indexOf(':');
+            long micros = Long.parseLong(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            OffsetDateTime checkedAt = Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+            return new HistoryCursor(checkedAt, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+
+    //true se a linha vem DEPOIS do cursor na ordem (checked_at DESC, id DESC)
+    public boolean isAfter(OffsetDateTime rowCheckedAt, long rowId) {
+        int byTime = rowCheckedAt.toInstant().compareTo(checkedAt.toInstant());
+        return byTime < 0 || (byTime == 0 && rowId < id);
+    }
+}
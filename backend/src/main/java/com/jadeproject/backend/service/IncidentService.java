@@ -1,16 +1,26 @@
 package com.jadeproject.backend.service;
 
+import com.jadeproject.backend.event.MonitorChangedEvent;
+import com.jadeproject.backend.live.LiveEventBus;
 import com.jadeproject.backend.model.Incident;
 import com.jadeproject.backend.model.Monitor;
 import com.jadeproject.backend.repository.IncidentRepository;
+import com.jadeproject.backend.status.CurrentStatusRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
@@ -18,20 +28,61 @@ import java.util.Optional;
 public class IncidentService {
 
     private final IncidentRepository incidentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LiveEventBus liveEventBus;
+    private final CurrentStatusRepository currentStatusRepository; //Incidente aberto no estado atual (dashboard)
 
-    public IncidentService(IncidentRepository incidentRepository) {
+    /*Estado dos incidentes em memória: monitorId -> ID do incidente OPEN.
+    * Mais de 99% das verificações são "continua UP, sem incidente": com este mapa elas não tocam no banco.
+    * O banco só é acessado quando o estado MUDA (abrir ou fechar um incidente).
+    * O mapa é a fonte da verdade porque só este processo abre/fecha incidentes. No modo cluster isso não vale
+    * (outro nó pode ter aberto o incidente), então lá continuamos consultando o banco a cada verificação.*/
+    private final Map<Long, Long> openIncidents = new ConcurrentHashMap<>();
+    private final boolean useCache;
+
+    public IncidentService(IncidentRepository incidentRepository,
+                           TransactionTemplate transactionTemplate,
+                           LiveEventBus liveEventBus,
+                           CurrentStatusRepository currentStatusRepository,
+                           @Value("${jade.scheduler.cluster.enabled:false}") boolean clusterEnabled) {
         this.incidentRepository = incidentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.liveEventBus = liveEventBus;
+        this.currentStatusRepository = currentStatusRepository;
+        this.useCache = !clusterEnabled;
+    }
+
+    //Carrega os incidentes abertos uma vez, antes do scheduler começar a verificar
+    @PostConstruct
+    void warmUpCache() {
+        if (!useCache) {
+            return;
+        }
+        for (Incident incident : incidentRepository.findByStatus("OPEN")) {
+            //getMonitor().getId() não carrega o monitor: o proxy LAZY já sabe o próprio ID
+            openIncidents.put(incident.getMonitor().getId(), incident.getId());
+        }
+        log.info("{} incidentes abertos carregados em memória.", openIncidents.size());
+    }
+
+    //Monitor excluído: os incidentes dele vão junto (ON DELETE CASCADE), então sai do mapa também
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMonitorChanged(MonitorChangedEvent event) {
+        if (event.type() == MonitorChangedEvent.ChangeType.DELETED) {
+            openIncidents.remove(event.monitorId());
+        }
     }
 
     //LÓGICA: o site CAIU, o que fazer?
-    @Transactional //readOnly = false é o padrão aqui
+    //Sem transação no caminho comum: só abre uma (TransactionTemplate) se for preciso criar o incidente
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void handleDownEvent(Monitor monitor, String errorReason) {
-        //1. Verifica se já existe incidente aberto para este monitor
-        Optional<Incident> openIncident = incidentRepository.findByMonitorIdAndStatus(monitor.getId(), "OPEN");
+        //1. Verifica se já existe incidente aberto para este monitor (memória ou, no modo cluster, banco)
+        Optional<Long> openIncidentId = findOpenIncidentId(monitor.getId());
 
-        if (openIncident.isPresent()) {
+        if (openIncidentId.isPresent()) {
             //Se já está aberto, não fazer nada (pode tbm atualizar o log)
-            log.info("Monitor '{}' continua DOWN. Incidente já aberto (ID: {}).", monitor.getName(), openIncident.get().getId());
+            log.info("Monitor '{}' continua DOWN. Incidente já aberto (ID: {}).", monitor.getName(), openIncidentId.get());
         } else {
             //2. Se não tem, cria um novo incidente
             Incident newIncident = new Incident();
@@ -42,30 +93,56 @@ public class IncidentService {
             newIncident.setCreatedAt(OffsetDateTime.now(ZoneOffset.UTC));
             newIncident.setDescription(errorReason); //ex.: "Timeout", "404 Not Found"
 
-            incidentRepository.save(newIncident);
+            //Incidente e estado atual na mesma transação: o dashboard nunca mostra um sem o outro
+            Incident saved = transactionTemplate.execute(status -> {
+                Incident incident = incidentRepository.save(newIncident);
+                currentStatusRepository.setOpenIncident(monitor.getId(), incident.getId());
+                return incident;
+            });
+            if (saved != null) {
+                if (useCache) {
+                    openIncidents.put(monitor.getId(), saved.getId()); //Só depois do commit
+                }
+                liveEventBus.publishIncident(monitor, saved, true);
+            }
             log.warn("[ALERTA] NOVO INCIDENTE CRIADO: {} está fora do ar. Motivo: {}", monitor.getName(), errorReason);
             //TODO: futuramente, enviaria o email/slack de alerta
         }
     }
 
     //Lógica: o site VOLTOU, o que fazer?
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void handleUpEvent(Monitor monitor) {
         //1. Verifica se existe um incidente que ficou ABERTO
-        Optional<Incident> openIncident = incidentRepository.findByMonitorIdAndStatus(monitor.getId(), "OPEN");
+        Optional<Long> openIncidentId = findOpenIncidentId(monitor.getId());
 
-        if (openIncident.isPresent()) {
+        if (openIncidentId.isPresent()) {
             //2. Se existe, fechar o incidente
-            Incident incident = openIncident.get();
-            incident.setStatus("RESOLVED");
-            incident.setEndedAt(OffsetDateTime.now(ZoneOffset.UTC));
-
-            incidentRepository.save(incident);
+            Incident resolved = transactionTemplate.execute(status ->
+                    incidentRepository.findById(openIncidentId.get()).map(incident -> {
+                        incident.setStatus("RESOLVED");
+                        incident.setEndedAt(OffsetDateTime.now(ZoneOffset.UTC));
+                        currentStatusRepository.clearOpenIncident(monitor.getId(), incident.getId());
+                        return incidentRepository.save(incident);
+                    }).orElse(null));
+            openIncidents.remove(monitor.getId());
+            if (resolved != null) {
+                liveEventBus.publishIncident(monitor, resolved, false);
+            }
             log.info("[RESOLVIDO] Incidente fechado para '{}'. O serviço voltou ao normal.", monitor.getName());
             //TODO: enviar email de normalização.
         }
     }
 
+    private Optional<Long> findOpenIncidentId(Long monitorId) {
+        if (useCache) {
+            return Optional.ofNullable(openIncidents.get(monitorId));
+        }
+        //Transação de escrita = banco principal: na réplica, um incidente aberto há pouco poderia ainda não aparecer
+        return transactionTemplate.execute(status ->
+                incidentRepository.findByMonitorIdAndStatus(monitorId, "OPEN").map(Incident::getId));
+    }
+
     public List<Incident> getIncidentsByMonitor(Long monitorId) {
         return incidentRepository.findByMonitorId(monitorId);
     }
@@ -0,0 +1,78 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.probe.ProbeResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/*Gravação padrão do histórico: um batchUpdate por lote, numa transação só.
+* Com reWriteBatchedInserts=true (application.properties) o driver transforma o lote em INSERTs de várias linhas.*/
+@Slf4j
+@Component
+public class JdbcBatchHistorySink implements MonitorHistorySink {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO monitor_history
+                (monitor_id, status_code, latency_ms, dns_ms, connect_ms, tls_ms, request_ms, is_successful, checked_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcBatchHistorySink(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public int write(List<MonitorHistoryWriter.Row> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), JdbcBatchHistorySink::bind));
+            return rows.size();
+        } catch (DataAccessException e) {
+            //Uma linha ruim (ex: monitor excluído enquanto a linha estava na fila -> FK) derruba o lote inteiro.
+            //Regrava linha por linha para salvar as boas.
+            log.warn("Falha ao gravar lote de {} linhas de histórico, gravando uma a uma: {}", rows.size(), e.getMessage());
+            int written = 0;
+            for (MonitorHistoryWriter.Row row : rows) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row));
+                    written++;
+                } catch (DataAccessException rowError) {
+                    log.debug("Linha de histórico do monitor {} descartada: {}", row.monitorId(), rowError.getMessage());
+                }
+            }
+            return written;
+        }
+    }
+
+    private static void bind(PreparedStatement ps, MonitorHistoryWriter.Row row) throws SQLException {
+        ProbeResult result = row.result();
+        ps.setLong(1, row.monitorId());
+        ps.setInt(2, result.statusCode());
+        ps.setInt(3, (int) result.responseTimeMs());
+        setNullableInt(ps, 4, result.timings().dnsMs());
+        setNullableInt(ps, 5, result.timings().connectMs());
+        setNullableInt(ps, 6, result.timings().tlsMs());
+        setNullableInt(ps, 7, result.timings().requestMs());
+        ps.setBoolean(8, result.isUp());
+        ps.setObject(9, row.checkedAt());
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+}
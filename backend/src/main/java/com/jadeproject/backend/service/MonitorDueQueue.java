@@ -0,0 +1,109 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.model.Monitor;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/*Agenda em memória do MonitorScheduler: cada monitor ativo tem UMA entrada com o horário da próxima verificação.
+* A DelayQueue só entrega a entrada quando o horário chega, então quem chama take() dorme exatamente até o próximo monitor vencer
+* (nada de acordar a cada 10s para perguntar ao banco quem está atrasado).
+*
+* Reagendar ou remover não mexe na DelayQueue (remover de lá é O(n)). O mapa 'schedule' guarda a entrada VÁLIDA de cada monitor;
+* entradas antigas que ainda estão na fila são descartadas quando vencem.*/
+public class MonitorDueQueue {
+
+    private final DelayQueue<ScheduledCheck> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<Long, ScheduledCheck> schedule = new ConcurrentHashMap<>();
+
+    //Agenda (ou reagenda) o monitor, substituindo qualquer entrada anterior
+    public void schedule(Monitor monitor, Instant dueAt) {
+        ScheduledCheck check = new ScheduledCheck(monitor, dueAt);
+        schedule.put(monitor.getId(), check);
+        queue.put(check);
+    }
+
+    //Reagenda apenas se 'previous' ainda for a entrada válida.
+    //Se o monitor foi removido ou alterado enquanto a verificação rodava, quem alterou já decidiu a nova agenda.
+    public void reschedule(ScheduledCheck previous, Instant nextDueAt) {
+        schedule.computeIfPresent(previous.getMonitorId(), (id, current) -> {
+            if (current != previous) {
+                return current;
+            }
+            ScheduledCheck next = new ScheduledCheck(current.getMonitor(), nextDueAt);
+            queue.put(next);
+            return next;
+        });
+    }
+
+    //Troca os dados do monitor (nome, URL...) sem mexer no horário. Retorna false se ele não estava agendado.
+    public boolean refresh(Monitor monitor) {
+        ScheduledCheck current = schedule.get(monitor.getId());
+        if (current == null) {
+            return false;
+        }
+        current.setMonitor(monitor);
+        return true;
+    }
+
+    public ScheduledCheck get(Long monitorId) {
+        return schedule.get(monitorId);
+    }
+
+    public void remove(Long monitorId) {
+        schedule.remove(monitorId);
+    }
+
+    //Bloqueia até o próximo monitor vencer
+    public ScheduledCheck take() throws InterruptedException {
+        while (true) {
+            ScheduledCheck check = queue.take();
+            if (schedule.get(check.getMonitorId()) == check) {
+                return check;
+            }
+            //Entrada antiga (monitor removido ou reagendado): ignora
+        }
+    }
+
+    public int size() {
+        return schedule.size();
+    }
+
+    //Uma verificação agendada. O monitor é volátil porque pode ser trocado pelo refresh() enquanto está na fila.
+    public static class ScheduledCheck implements Delayed {
+
+        private final Long monitorId;
+        private final Instant dueAt;
+        private volatile Monitor monitor;
+
+        private ScheduledCheck(Monitor monitor, Instant dueAt) {
+            this.monitorId = monitor.getId();
+            this.monitor = monitor;
+            this.dueAt = dueAt;
+        }
+
+        public Long getMonitorId() { return monitorId; }
+
+        public Instant getDueAt() { return dueAt; }
+
+        public Monitor getMonitor() { return monitor; }
+
+        private void setMonitor(Monitor monitor) { this.monitor = monitor; }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt.toEpochMilli() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof ScheduledCheck check) {
+                return dueAt.compareTo(check.dueAt);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
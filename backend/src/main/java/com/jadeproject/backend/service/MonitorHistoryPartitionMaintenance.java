@@ -0,0 +1,63 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.run.HistoryRunRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*Manutenção das partições diárias de monitor_history (ver migração V7).
+*   - Cria antecipadamente as partições dos próximos days-ahead dias (o INSERT nunca pode ficar sem partição);
+*   - Retenção: apaga as partições com mais de retention-days dias com DROP TABLE, em vez de DELETE linha a linha.
+*     Partição em uso (lock_timeout de 3s, ver V13) fica para o próximo ciclo.
+* Os runs do modo STATE_CHANGE (monitor_history_run) seguem a mesma retenção, com DELETE (a tabela é pequena).
+* O trabalho pesado está nas funções SQL da migração; aqui só chamamos de tempos em tempos.
+* Seguro no modo cluster: as funções usam um advisory lock, então dois nós não mexem nas partições ao mesmo tempo.*/
+@Slf4j
+@Component
+public class MonitorHistoryPartitionMaintenance {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HistoryRunRepository runRepository;
+    private final int daysAhead;
+    private final int retentionDays;
+
+    public MonitorHistoryPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                              HistoryRunRepository runRepository,
+                                              @Value("${jade.history.partitions.days-ahead:7}") int daysAhead,
+                                              @Value("${jade.history.retention-days:90}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.runRepository = runRepository;
+        this.daysAhead = daysAhead;
+        this.retentionDays = retentionDays;
+    }
+
+    //Roda logo que a aplicação sobe e depois a cada maintenance-interval-ms (padrão: 1 hora)
+    @Scheduled(initialDelay = 0, fixedDelayString = "${jade.history.partitions.maintenance-interval-ms:3600000}")
+    public void maintainPartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject(
+                    "SELECT monitor_history_ensure_partitions(?)", Integer.class, daysAhead);
+            if (created != null && created > 0) {
+                log.info("{} partições novas de monitor_history criadas.", created);
+            }
+
+            //retention-days = 0 desliga a retenção (guarda tudo)
+            if (retentionDays > 0) {
+                Integer dropped = jdbcTemplate.queryForObject(
+                        "SELECT monitor_history_drop_partitions(?)", Integer.class, retentionDays);
+                if (dropped != null && dropped > 0) {
+                    log.info("{} partições de monitor_history com mais de {} dias removidas.", dropped, retentionDays);
+                }
+                runRepository.deleteOlderThan(Instant.now().minus(Duration.ofDays(retentionDays)));
+            }
+        } catch (RuntimeException e) {
+            //Tenta de novo no próximo ciclo; há days-ahead dias de folga antes de faltar partição
+            log.error("Falha na manutenção das partições de monitor_history: ", e);
+        }
+    }
+}
@@ -2,16 +2,29 @@ package com.jadeproject.backend.service;
 
 import com.jadeproject.backend.model.Monitor;
 import com.jadeproject.backend.model.MonitorHistory;
+import com.jadeproject.backend.probe.ProbeResult;
 import com.jadeproject.backend.repository.MonitorHistoryRepository;
-import com.jadeproject.backend.repository.MonitorRepository;
+import com.jadeproject.backend.run.HistoryRunRepository;
+import com.jadeproject.backend.run.HistoryRunSummary;
+import com.jadeproject.backend.segment.HistorySegmentCodec;
+import com.jadeproject.backend.segment.HistorySegmentRepository;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.PageRequest; //Para solicitar X itens
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
@@ -19,42 +32,161 @@ import java.time.ZoneOffset;
 @Transactional(readOnly = true) //Define o padrão como LEITURA (mais seguro e performático)
 public class MonitorHistoryService {
 
+    private static final Duration RECENT_WINDOW = Duration.ofDays(1);
+
     private final MonitorHistoryRepository historyRepository;
-    private final MonitorRepository monitorRepository;
+    private final MonitorHistoryWriter historyWriter;
+    private final HistorySegmentRepository segmentRepository;
+    private final HistoryRunRepository runRepository;
 
     public MonitorHistoryService(MonitorHistoryRepository historyRepository,
-                                 MonitorRepository monitorRepository) {
+                                 MonitorHistoryWriter historyWriter,
+                                 HistorySegmentRepository segmentRepository,
+                                 HistoryRunRepository runRepository) {
         this.historyRepository = historyRepository;
-        this.monitorRepository = monitorRepository;
+        this.historyWriter = historyWriter;
+        this.segmentRepository = segmentRepository;
+        this.runRepository = runRepository;
     }
 
     //Registra uma nova verificação (ping/http check) no banco
-    //Quem vai fazer isso no futuro é o scheduler
-    @Transactional
-    public void saveLog(Monitor monitor, int statusCode, long responseTimeMs, boolean isUp) {
-        MonitorHistory log = new MonitorHistory();
-        log.setMonitor(monitor);
-        log.setStatusCode(statusCode);
-        log.setLatency((int) responseTimeMs);
-        log.setIsSuccessful(isUp);
-        log.setCheckedAt(OffsetDateTime.now(ZoneOffset.UTC));
-        historyRepository.save(log);
-        //Atualiza last_checked atomicamente com o registro do log
-        monitor.setLastChecked(OffsetDateTime.now(ZoneOffset.UTC));
-        monitorRepository.save(monitor);
+    //Tudo vai para a fila do MonitorHistoryWriter, que grava o histórico E o last_checked em lote logo depois.
+    //leaseOwner: no modo cluster, o nó dono do lease (devolvido junto com o last_checked); null no modo de nó único.
+    //nextCheckAt: próxima verificação decidida pelo scheduler (AdaptiveIntervalPolicy), gravada em monitors.next_check_at.
+    //Retorna false se a fila estava cheia e a verificação foi descartada.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //Não toca no banco: não precisa abrir transação/conexão
+    public boolean saveLog(Monitor monitor, ProbeResult result, Instant nextCheckAt,
+                           String leaseOwner) throws InterruptedException {
+        //Microssegundos: a precisão do PostgreSQL. A linha e os runs dela se ligam por esse valor (state_since)
+        OffsetDateTime checkedAt = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+        //Só a cópia em memória (usada pela agenda do scheduler). O banco é atualizado pelo writer, sem merge da entidade
+        monitor.setLastChecked(checkedAt);
+        return historyWriter.enqueue(new MonitorHistoryWriter.Row(monitor.getId(), result, checkedAt,
+                nextCheckAt.atOffset(ZoneOffset.UTC),
+                leaseOwner, "STATE_CHANGE".equals(monitor.getStorageMode())));
     }
 
     //Busca histórico recente para o dashboard
-    //Usa método top10 do MonitorHistoryRepository
+    //Primeiro olha só o último dia (poucas partições). Só se não achar 10 registros (monitor novo, pausado
+    //ou com intervalo muito longo) faz a busca sem limite de data, que passa por todas as partições.
     public List<MonitorHistory> getRecentLogs(Long monitorId) {
-        return historyRepository.findByMonitorId(
-                monitorId,
-                PageRequest.of(0, 10, Sort.by("checkedAt").descending())
-        );
+        PageRequest top10 = PageRequest.of(0, 10, Sort.by("checkedAt").descending());
+        List<MonitorHistory> recent = historyRepository.findByMonitorIdAndCheckedAtAfter(
+                monitorId, OffsetDateTime.now(ZoneOffset.UTC).minus(RECENT_WINDOW), top10);
+        if (recent.size() < top10.getPageSize()) {
+            recent = historyRepository.findByMonitorId(monitorId, top10);
+        }
+        attachRepeats(monitorId, recent);
+        return recent;
     }
 
-    //Histórico completo para relatórios detalhados
+    /*Histórico completo para relatórios detalhados, juntando as duas camadas:
+    *   - QUENTE: linhas de monitor_history (dias recentes), do mais novo para o mais antigo;
+    *   - FRIA: segmentos comprimidos dos dias antigos (HistorySegmentCompactor), sempre mais antigos que qualquer linha quente.
+    * A página é preenchida primeiro pela camada quente e completada pela fria. Os segmentos guardam a quantidade de
+    * linhas, então os que ficam antes da página são pulados sem descomprimir.*/
     public Page<MonitorHistory> getPaginatedLogs(Long monitorId, Pageable pageable) {
-        return historyRepository.findByMonitorIdOrderByCheckedAtDesc(monitorId, pageable);
+        Page<MonitorHistory> hot = historyRepository.findByMonitorIdOrderByCheckedAtDesc(monitorId, pageable);
+        List<HistorySegmentRepository.SegmentInfo> segments = segmentRepository.findSegments(monitorId);
+        if (segments.isEmpty()) {
+            attachRepeats(monitorId, hot.getContent());
+            return hot;
+        }
+
+        long hotCount = hot.getTotalElements();
+        long coldCount = segments.stream().mapToLong(HistorySegmentRepository.SegmentInfo::rowCount).sum();
+        List<MonitorHistory> content = new ArrayList<>(hot.getContent());
+
+        long skip = Math.max(0, pageable.getOffset() - hotCount); //Posição da página dentro da camada fria
+        Monitor monitorRef = new Monitor();
+        monitorRef.setId(monitorId);
+        for (HistorySegmentRepository.SegmentInfo segment : segments) {
+            if (content.size() >= pageable.getPageSize()) {
+                break;
+            }
+            if (skip >= segment.rowCount()) {
+                skip -= segment.rowCount();
+                continue;
+            }
+            List<MonitorHistory> rows = HistorySegmentCodec.decode(
+                    segmentRepository.findData(monitorId, segment.segmentDay()), monitorRef).reversed();
+            int from = (int) skip;
+            int to = Math.min(rows.size(), from + pageable.getPageSize() - content.size());
+            content.addAll(rows.subList(from, to));
+            skip = 0;
+        }
+
+        attachRepeats(monitorId, content);
+        return new PageImpl<>(content, pageable, hotCount + coldCount);
+    }
+
+    /*Histórico paginado por CURSOR: a página seguinte à linha do cursor (null = primeira página).
+    * Ao contrário do getPaginatedLogs, não usa OFFSET (que precisa percorrer todas as linhas anteriores) nem COUNT
+    * do histórico inteiro, então a página 10.000 custa o mesmo que a primeira. Devolve um Slice: só sabe se há mais.
+    * Busca size + 1 linhas para descobrir se existe próxima página. Quando a camada quente acaba, continua
+    * pelos segmentos frios (HistorySegmentCompactor), que são sempre mais antigos.*/
+    public Slice<MonitorHistory> getLogsAfterCursor(Long monitorId, HistoryCursor cursor, int size) {
+        int limit = size + 1;
+        List<MonitorHistory> content = new ArrayList<>(cursor == null
+                ? historyRepository.findByMonitorId(monitorId, PageRequest.of(0, limit,
+                        Sort.by(Sort.Order.desc("checkedAt"), Sort.Order.desc("id"))))
+                : historyRepository.findPageAfterCursor(monitorId, cursor.checkedAt(), cursor.id(), limit));
+
+        if (content.size() < limit) {
+            //Camada quente acabou: continua pelos segmentos dos dias anteriores ao último ponto entregue
+            HistoryCursor position = content.isEmpty() ? cursor
+                    : new HistoryCursor(content.getLast().getCheckedAt(), content.getLast().getId());
+            Monitor monitorRef = new Monitor();
+            monitorRef.setId(monitorId);
+            for (HistorySegmentRepository.SegmentInfo segment : segmentRepository.findSegments(monitorId)) {
+                if (content.size() >= limit) {
+                    break;
+                }
+                if (position != null && segment.segmentDay().isAfter(
+                        position.checkedAt().withOffsetSameInstant(ZoneOffset.UTC).toLocalDate())) {
+                    continue; //Dia inteiro antes do cursor (já entregue)
+                }
+                for (MonitorHistory row : HistorySegmentCodec.decode(
+                        segmentRepository.findData(monitorId, segment.segmentDay()), monitorRef).reversed()) {
+                    if (content.size() >= limit) {
+                        break;
+                    }
+                    if (position == null || position.isAfter(row.getCheckedAt(), row.getId())) {
+                        content.add(row);
+                    }
+                }
+            }
+        }
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+        attachRepeats(monitorId, content);
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    /*Modo STATE_CHANGE: cada linha devolvida é uma mudança de status e as verificações repetidas que vieram depois
+    * estão resumidas em runs. Aqui cada linha recebe o resumo dos seus runs (quantas, até quando, latência), ou seja,
+    * a lista vira "status X desde A até B, N verificações". Uma consulta só para a página inteira.
+    * Monitores no modo FULL não têm runs: a consulta volta vazia pelo índice.*/
+    private void attachRepeats(Long monitorId, List<MonitorHistory> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Instant from = rows.getFirst().getCheckedAt().toInstant();
+        Instant to = from;
+        for (MonitorHistory row : rows) {
+            Instant checkedAt = row.getCheckedAt().toInstant();
+            from = checkedAt.isBefore(from) ? checkedAt : from;
+            to = checkedAt.isAfter(to) ? checkedAt : to;
+        }
+        Map<Instant, HistoryRunSummary> summaries = runRepository.findSummaries(monitorId, from, to);
+        if (summaries.isEmpty()) {
+            return;
+        }
+        for (MonitorHistory row : rows) {
+            row.setRepeats(summaries.get(row.getCheckedAt().toInstant()));
+        }
     }
 }
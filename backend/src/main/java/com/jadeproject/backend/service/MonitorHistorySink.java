@@ -0,0 +1,13 @@
+package com.jadeproject.backend.service;
+
+import java.util.List;
+
+/*Destino dos lotes de histórico montados pelo MonitorHistoryWriter.
+* Implementações:
+*   - JdbcBatchHistorySink: batchUpdate com INSERTs de várias linhas (padrão);
+*   - CopyHistorySink: COPY ... FROM STDIN do PostgreSQL (jade.history.ingest-mode=copy).*/
+public interface MonitorHistorySink {
+
+    //Grava o lote e devolve quantas linhas foram de fato gravadas (as demais foram descartadas)
+    int write(List<MonitorHistoryWriter.Row> rows);
+}
@@ -0,0 +1,244 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.probe.ProbeResult;
+import com.jadeproject.backend.repository.MonitorRepository;
+import com.jadeproject.backend.run.HistoryRunRepository;
+import com.jadeproject.backend.run.HistoryRunTracker;
+import com.jadeproject.backend.status.CheckStatus;
+import com.jadeproject.backend.status.CurrentStatusRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*Gravação "write-behind" do histórico de verificações.
+* Antes: cada verificação abria uma transação e fazia um INSERT sozinho (com IDENTITY o Hibernate não consegue agrupar).
+* Agora: o saveLog só coloca a linha numa fila em memória e uma thread gravadora esvazia a fila em LOTES:
+*   - Um lote é gravado quando junta batch-size linhas OU quando passa flush-interval-ms desde a primeira linha do lote;
+*   - Cada lote é entregue ao MonitorHistorySink configurado (jade.history.ingest-mode): INSERT em lote (padrão)
+*     ou COPY do PostgreSQL;
+*   - Depois do histórico, o last_checked dos monitores do lote é gravado com UM UPDATE (MonitorRepository.markChecked),
+*     em vez de um merge + UPDATE da linha inteira do monitor por verificação;
+*   - Junto, a última verificação de cada monitor vai para monitor_current_status (estado atual do dashboard);
+*   - Monitores no modo STATE_CHANGE: só as mudanças de status viram linha; as repetições são somadas em runs
+*     (HistoryRunTracker) e os runs alterados são gravados no fim do flush;
+*   - Fila LIMITADA (backpressure): se o banco ficar para trás e a fila encher, quem chama o enqueue espera
+*     (a virtual thread da verificação estaciona) por até enqueue-timeout-ms. Passou disso, a linha é descartada e contada;
+*   - No desligamento, a thread para de esperar e grava o que ainda está na fila.*/
+@Slf4j
+@Component
+public class MonitorHistoryWriter {
+
+    private final MonitorHistorySink sink;
+    private final MonitorRepository monitorRepository;
+    private final HistoryRunTracker runTracker;
+    private final HistoryRunRepository runRepository;
+    private final CurrentStatusRepository currentStatusRepository;
+    private final BlockingQueue<Row> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final Counter droppedRows;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    //Uma linha de histórico pendente. checkedAt é o horário da verificação, não o da gravação.
+    //nextCheckAt: próxima verificação na grade do monitor (vai para monitors.next_check_at junto com o last_checked)
+    //leaseOwner: nó cujo lease deve ser devolvido junto com o last_checked (null fora do modo cluster)
+    //stateChangeOnly: monitor no modo STATE_CHANGE (a linha pode acabar absorvida por um run)
+    public record Row(Long monitorId, ProbeResult result, OffsetDateTime checkedAt, OffsetDateTime nextCheckAt,
+                      String leaseOwner, boolean stateChangeOnly) {
+    }
+
+    public MonitorHistoryWriter(MonitorHistorySink sink,
+                                MonitorRepository monitorRepository,
+                                HistoryRunTracker runTracker,
+                                HistoryRunRepository runRepository,
+                                CurrentStatusRepository currentStatusRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${jade.history.writer.queue-capacity:10000}") int queueCapacity,
+                                @Value("${jade.history.writer.batch-size:500}") int batchSize,
+                                @Value("${jade.history.writer.flush-interval-ms:1000}") long flushIntervalMs,
+                                @Value("${jade.history.writer.enqueue-timeout-ms:5000}") long enqueueTimeoutMs) {
+        this.sink = sink;
+        this.monitorRepository = monitorRepository;
+        this.runTracker = runTracker;
+        this.runRepository = runRepository;
+        this.currentStatusRepository = currentStatusRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+
+        Gauge.builder("jade.history.writer.queue.depth", queue, BlockingQueue::size)
+                .description("Linhas de histórico esperando gravação")
+                .register(meterRegistry);
+        this.droppedRows = Counter.builder("jade.history.writer.dropped")
+                .description("Linhas de histórico descartadas (fila cheia ou falha ao gravar)")
+                .register(meterRegistry);
+
+        this.writerThread = Thread.ofPlatform().name("history-writer").start(this::writeLoop);
+    }
+
+    //Coloca a linha na fila. Bloqueia enquanto a fila estiver cheia (até enqueue-timeout-ms).
+    //Retorna false se a linha foi descartada (fila cheia ou aplicação desligando).
+    //Com false, quem chamou continua dono do lease e deve devolvê-lo (ver MonitorScheduler.runCheck).
+    public boolean enqueue(Row row) throws InterruptedException {
+        if (!running) {
+            //Verificação que terminou depois do shutdown: não tem mais quem grave
+            log.debug("Gravador de histórico já encerrado. Verificação do monitor {} descartada.", row.monitorId());
+            return false;
+        }
+        if (!queue.offer(row, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+            droppedRows.increment();
+            log.error("Fila do histórico cheia há {}ms. Verificação do monitor {} descartada.", enqueueTimeoutMs, row.monitorId());
+            return false;
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<Row> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                //Espera a primeira linha do lote...
+                Row first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                //...e junta mais até encher o lote ou estourar o tempo
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Row next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                //Desligando: cai para o flush abaixo e depois para o dreno final
+            }
+            flush(batch);
+            batch.clear();
+        }
+
+        //Dreno final: grava o que sobrou na fila.
+        //Limpa a interrupção pendente (se ela chegou durante um flush), senão o pool de conexões recusaria o empréstimo
+        Thread.interrupted();
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Row> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        //Separa o que vira linha do que só soma num run (na ordem da fila: a ordem das verificações de cada monitor)
+        List<Row> fullRows = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (!row.stateChangeOnly()) {
+                runTracker.forget(row.monitorId());
+                fullRows.add(row);
+            } else if (!runTracker.absorb(row.monitorId(), row.checkedAt().toInstant(), row.result().statusCode(),
+                    (int) row.result().responseTimeMs(), row.result().isUp())) {
+                fullRows.add(row);
+            }
+        }
+
+        if (!fullRows.isEmpty()) {
+            try {
+                int written = sink.write(fullRows);
+                droppedRows.increment(fullRows.size() - written);
+            } catch (RuntimeException e) {
+                //Banco fora do ar, por exemplo. A thread gravadora não pode morrer por causa disso
+                droppedRows.increment(fullRows.size());
+                log.error("Falha ao gravar lote de {} linhas de histórico: ", fullRows.size(), e);
+            }
+        }
+        writeRuns();
+        markChecked(batch);
+    }
+
+    private void writeRuns() {
+        if (runTracker.dirtyRuns().isEmpty()) {
+            return;
+        }
+        try {
+            runRepository.upsert(runTracker.dirtyRuns());
+            runTracker.clearDirtyRuns();
+        } catch (RuntimeException e) {
+            //Os runs continuam em memória com os totais: são regravados no próximo flush
+            log.error("Falha ao gravar {} runs de histórico: ", runTracker.dirtyRuns().size(), e);
+        }
+    }
+
+    //A verificação aconteceu mesmo que a linha de histórico tenha sido descartada: o last_checked é gravado de qualquer jeito
+    private void markChecked(List<Row> batch) {
+        //Um monitor pode aparecer mais de uma vez no lote: fica só a verificação mais recente
+        Map<Long, Row> latest = new HashMap<>();
+        for (Row row : batch) {
+            latest.merge(row.monitorId(), row, (a, b) -> a.checkedAt().isAfter(b.checkedAt()) ? a : b);
+        }
+
+        int size = latest.size();
+        Long[] ids = new Long[size];
+        OffsetDateTime[] checkedAts = new OffsetDateTime[size];
+        OffsetDateTime[] nextCheckAts = new OffsetDateTime[size];
+        String[] leaseOwners = new String[size];
+        int i = 0;
+        for (Row row : latest.values()) {
+            ids[i] = row.monitorId();
+            checkedAts[i] = row.checkedAt();
+            nextCheckAts[i] = row.nextCheckAt();
+            leaseOwners[i] = row.leaseOwner();
+            i++;
+        }
+
+        try {
+            monitorRepository.markChecked(ids, checkedAts, nextCheckAts, leaseOwners);
+        } catch (RuntimeException e) {
+            //Sem o last_checked, no pior caso o monitor é verificado de novo um pouco antes (restart/cluster)
+            log.error("Falha ao atualizar last_checked de {} monitores: ", size, e);
+        }
+
+        List<CheckStatus> statuses = new ArrayList<>(size);
+        for (Row row : latest.values()) {
+            statuses.add(new CheckStatus(row.monitorId(), row.checkedAt(), row.result().statusCode(),
+                    (int) row.result().responseTimeMs(), row.result().isUp()));
+        }
+        try {
+            currentStatusRepository.upsertChecks(statuses);
+        } catch (RuntimeException e) {
+            //O dashboard mostra o estado anterior até o próximo lote desses monitores
+            log.error("Falha ao atualizar o estado atual de {} monitores: ", size, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(30)); //Dá tempo para o dreno final terminar
+    }
+}
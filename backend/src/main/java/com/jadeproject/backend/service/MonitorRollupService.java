@@ -0,0 +1,146 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.rollup.RollupBucket;
+import com.jadeproject.backend.rollup.RollupGranularity;
+import com.jadeproject.backend.rollup.RollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*Leitura dos rollups do histórico (gravados pelo MonitorRollupJob).
+* Escolhe sozinho a granularidade MAIS GROSSA que ainda entrega a resolução pedida:
+*   - 90 dias com pelo menos 24 pontos -> baldes de 1 dia (~90 linhas, em vez de ~130 mil verificações);
+*   - 24 horas -> baldes de 1 hora (24 linhas);
+*   - 1 hora -> baldes de 1 minuto.
+* Também monta o RESUMO de um período (uptime, contagens, percentis) sem devolver linha nenhuma, ver summarize.*/
+@Service
+public class MonitorRollupService {
+
+    private final RollupRepository rollupRepository;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+    //Verificações brutas mais antigas que isso já viraram segmentos frios (null = camada fria desligada)
+    private final Duration rawHotWindow;
+
+    public MonitorRollupService(RollupRepository rollupRepository,
+                                @Value("${jade.rollup.retention.minute-days:7}") long minuteRetentionDays,
+                                @Value("${jade.rollup.retention.hour-days:90}") long hourRetentionDays,
+                                @Value("${jade.history.cold.enabled:true}") boolean coldEnabled,
+                                @Value("${jade.history.cold.after-days:7}") long coldAfterDays) {
+        this.rollupRepository = rollupRepository;
+        this.minuteRetention = Duration.ofDays(minuteRetentionDays);
+        this.hourRetention = Duration.ofDays(hourRetentionDays);
+        this.rawHotWindow = coldEnabled ? Duration.ofDays(coldAfterDays) : null;
+    }
+
+    //Baldes de [from, to) na granularidade escolhida por chooseGranularity
+    public List<RollupBucket> getSeries(Long monitorId, RollupGranularity granularity, Instant from, Instant to) {
+        return rollupRepository.findBuckets(granularity, monitorId, from, to);
+    }
+
+    //Granularidade com pelo menos minPoints pontos em [from, to) (ou a mais fina que ainda existir nesse período)
+    //stateChangeMode: monitor no modo STATE_CHANGE, cujas repetições só entram a partir do rollup de 1 hora
+    public RollupGranularity chooseGranularity(Instant from, Instant to, int minPoints, boolean stateChangeMode) {
+        Duration range = Duration.between(from, to);
+        RollupGranularity finestAvailable = RollupGranularity.DAY;
+        //Da mais grossa para a mais fina: a primeira que der pontos suficientes ganha
+        for (RollupGranularity granularity : new RollupGranularity[]{
+                RollupGranularity.DAY, RollupGranularity.HOUR, RollupGranularity.MINUTE}) {
+            if (!isRetained(granularity, from) || (stateChangeMode && granularity == RollupGranularity.MINUTE)) {
+                break; //As mais finas também já foram apagadas nesse período
+            }
+            finestAvailable = granularity;
+            if (range.dividedBy(granularity.bucketSize()) >= minPoints) {
+                return granularity;
+            }
+        }
+        return finestAvailable;
+    }
+
+    /*Resumo de [from, to) num balde só, montado com o MENOR número de linhas possível:
+    *   - dias inteiros (já agregados) -> monitor_rollup_1d;
+    *   - horas inteiras nas pontas -> monitor_rollup_1h (inclui os runs do modo STATE_CHANGE);
+    *   - o resto (pedaços de hora nas pontas e o trecho recente que os rollups ainda não alcançaram) -> verificações brutas.
+    * 90 dias viram ~90 + ~50 linhas de rollup e algumas centenas de verificações, em vez de centenas de milhares.
+    * Pontas antigas cujo nível mais fino já foi apagado (rollup de 1 hora fora da retenção, ou verificações já compactadas
+    * em segmentos) são arredondadas para fora: entra o balde inteiro que contém a ponta.*/
+    @Transactional(readOnly = true) //Várias consultas: uma conexão só, do pool de leitura
+    public RollupBucket summarize(long monitorId, Instant from, Instant to) {
+        RollupBucket total = new RollupBucket(monitorId, from);
+        Map<RollupGranularity, Instant> watermarks = new EnumMap<>(RollupGranularity.class);
+        accumulate(total, monitorId, from, to, RollupGranularity.DAY, watermarks);
+        return total;
+    }
+
+    //Cobre [from, to) com baldes de 'granularity' e passa as pontas para o nível mais fino (HOUR -> verificações brutas)
+    private void accumulate(RollupBucket total, long monitorId, Instant from, Instant to,
+                            RollupGranularity granularity, Map<RollupGranularity, Instant> watermarks) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (granularity == null) {
+            rollupRepository.forEachRawCheck(monitorId, from, to, (id, checkedAt, statusCode, latencyMs, success) ->
+                    total.addCheck(statusCode, latencyMs, success));
+            rollupRepository.forEachRun(monitorId, from, to, total::merge);
+            return;
+        }
+
+        RollupGranularity finer = granularity == RollupGranularity.DAY ? RollupGranularity.HOUR : null;
+        Instant watermark = watermarks.computeIfAbsent(granularity, rollupRepository::findWatermark);
+        if (watermark == null) {
+            accumulate(total, monitorId, from, to, finer, watermarks); //Rollup ainda não rodou
+            return;
+        }
+
+        //Baldes inteiros dentro de [start, end). Se o nível mais fino não existe mais na ponta, a ponta é arredondada para fora
+        Instant limit = granularity.bucketStart(watermark);
+        Instant start = finerAvailable(finer, from) ? ceil(granularity, from) : granularity.bucketStart(from);
+        Instant cappedTo = to.isBefore(limit) ? to : limit;
+        Instant end = finerAvailable(finer, cappedTo) ? granularity.bucketStart(cappedTo) : ceil(granularity, cappedTo);
+        if (end.isAfter(limit)) {
+            end = limit;
+        }
+        if (!start.isBefore(end)) {
+            accumulate(total, monitorId, from, to, finer, watermarks);
+            return;
+        }
+
+        rollupRepository.findBuckets(granularity, monitorId, start, end).forEach(total::merge);
+        if (from.isBefore(start)) {
+            accumulate(total, monitorId, from, start, finer, watermarks);
+        }
+        if (end.isBefore(to)) {
+            accumulate(total, monitorId, end, to, finer, watermarks);
+        }
+    }
+
+    //O nível mais fino ainda tem dados no instante 'at'? (null = verificações brutas)
+    private boolean finerAvailable(RollupGranularity finer, Instant at) {
+        if (finer != null) {
+            return isRetained(finer, at);
+        }
+        return rawHotWindow == null || !at.isBefore(Instant.now().minus(rawHotWindow));
+    }
+
+    //Primeiro início de balde >= instant
+    private static Instant ceil(RollupGranularity granularity, Instant instant) {
+        Instant start = granularity.bucketStart(instant);
+        return start.equals(instant) ? instant : start.plus(granularity.bucketSize());
+    }
+
+    //Os rollups finos são apagados depois de alguns dias (ver MonitorRollupJob.purge)
+    private boolean isRetained(RollupGranularity granularity, Instant from) {
+        Instant now = Instant.now();
+        return switch (granularity) {
+            case MINUTE -> !from.isBefore(now.minus(minuteRetention));
+            case HOUR -> !from.isBefore(now.minus(hourRetention));
+            case DAY -> true;
+        };
+    }
+}
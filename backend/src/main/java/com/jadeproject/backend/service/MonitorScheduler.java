@@ -1,16 +1,41 @@
 package com.jadeproject.backend.service;
 
+import com.jadeproject.backend.event.MonitorChangedEvent;
+import com.jadeproject.backend.live.LiveEventBus;
 import com.jadeproject.backend.model.Monitor;
+import com.jadeproject.backend.probe.HostBulkhead;
+import com.jadeproject.backend.probe.HttpProbeClient;
+import com.jadeproject.backend.probe.ProbeCoalescer;
+import com.jadeproject.backend.probe.ProbeResult;
 import com.jadeproject.backend.repository.MonitorRepository;
+import com.jadeproject.backend.service.MonitorDueQueue.ScheduledCheck;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URI;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j //Do Lombok para criar logs automaticamente
 @Service
@@ -20,90 +45,302 @@ public class MonitorScheduler {
     private final MonitorRepository monitorRepository;
     private final MonitorHistoryService historyService;
     private final IncidentService incidentService; //DIFF: nova dependência
+    private final HttpProbeClient probeClient; //Transporte HTTP compartilhado (pool de conexões)
+    private final HostBulkhead hostBulkhead; //Limite de verificações simultâneas por host
+    private final ProbeCoalescer probeCoalescer; //Uma requisição só para o mesmo alvo vencendo junto
+    private final AdaptiveIntervalPolicy adaptiveInterval; //Quando verificar de novo (recheck rápido/backoff em falhas)
+    private final LiveEventBus liveEventBus; //Resultados ao vivo para quem está com o dashboard aberto (/live/stream)
+    //Transação de ESCRITA só para leituras que precisam do banco principal (a réplica pode estar atrasada, ver DataSourceConfig)
+    private final TransactionTemplate primaryReads;
 
-    //Injeção de dependência via construtor. DIFF: add o incidentService
+    //Cada verificação roda na sua própria virtual thread (Java 21).
+    //Uma virtual thread bloqueada esperando o socket não segura uma thread do SO, então criar uma por monitor é barato.
+    private final ExecutorService probeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    //Limite GLOBAL de requisições HTTP simultâneas. Sem isso, milhares de monitores vencendo juntos
+    //abririam milhares de sockets de uma vez só.
+    private final Semaphore concurrencyLimit;
+
+    //Agenda em memória (próxima verificação de cada monitor) e monitores com verificação em andamento
+    private final MonitorDueQueue dueQueue = new MonitorDueQueue();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private static final Duration IN_FLIGHT_RETRY = Duration.ofSeconds(1);
+    private static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(10); //Espera pelas verificações em andamento
+    private Thread dispatcher;
+
+    /*MODO CLUSTER (várias instâncias do backend apontando para o mesmo banco).
+    * Em vez de cada nó carregar TODOS os monitores, cada nó reivindica (lease) lotes de monitores que estão vencendo.
+    * Ver MonitorRepository.claimDueMonitors e a migração V4.*/
+    private final boolean clusterEnabled;
+    private final String nodeId;
+    private final int claimBatchSize;
+    private final Duration claimLookahead;
+    private final Duration leaseDuration;
+
+    //Injeção de dependência via construtor. DIFF: add o incidentService e o limite de concorrência
     public MonitorScheduler(MonitorRepository monitorRepository,
                             MonitorHistoryService historyService,
-                            IncidentService incidentService){
+                            IncidentService incidentService,
+                            HttpProbeClient probeClient,
+                            HostBulkhead hostBulkhead,
+                            ProbeCoalescer probeCoalescer,
+                            AdaptiveIntervalPolicy adaptiveInterval,
+                            LiveEventBus liveEventBus,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${jade.scheduler.max-concurrency:100}") int maxConcurrency,
+                            @Value("${jade.scheduler.cluster.enabled:false}") boolean clusterEnabled,
+                            @Value("${jade.scheduler.cluster.node-id:}") String nodeId,
+                            @Value("${jade.scheduler.cluster.batch-size:500}") int claimBatchSize,
+                            @Value("${jade.scheduler.cluster.lookahead-ms:10000}") long claimLookaheadMs,
+                            @Value("${jade.scheduler.cluster.lease-seconds:120}") long leaseSeconds){
         this.monitorRepository = monitorRepository;
         this.historyService = historyService;
         this.incidentService = incidentService;
+        this.probeClient = probeClient;
+        this.hostBulkhead = hostBulkhead;
+        this.probeCoalescer = probeCoalescer;
+        this.adaptiveInterval = adaptiveInterval;
+        this.liveEventBus = liveEventBus;
+        this.primaryReads = transactionTemplate;
+        this.concurrencyLimit = new Semaphore(maxConcurrency);
+        this.clusterEnabled = clusterEnabled;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.claimBatchSize = claimBatchSize;
+        this.claimLookahead = Duration.ofMillis(claimLookaheadMs);
+        this.leaseDuration = Duration.ofSeconds(leaseSeconds);
     }
 
-    //Roda a cada 10 segundos (10000ms) após o término da última execução
-    @Scheduled(fixedDelay = 10000)
-    public void checkMonitors() {
-        //1. O banco filtra e só traz quem precisa rodar
-        List<Monitor> monitors = monitorRepository.findMonitorsToProcess();
+    //ID do nó: hostname + sufixo aleatório (dois processos na mesma máquina não podem ter o mesmo ID)
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "jade";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
 
-        if (monitors.isEmpty()) {
-            return; //Ninguém pra rodar, volta a dormir.
+    //Sobe a agenda quando a aplicação termina de iniciar (depois do DataLoader)
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (clusterEnabled) {
+            //Modo cluster: a agenda começa vazia e é preenchida pelos leases (claimDueMonitors)
+            log.info("Scheduler em modo cluster. Nó: {}", nodeId);
+        } else {
+            //1. Carrega os monitores ativos UMA vez. Daqui para frente a agenda é mantida pelos eventos do MonitorService.
+            List<Monitor> monitors = monitorRepository.findByIsActiveTrue();
+            Instant now = Instant.now();
+            for (Monitor monitor : monitors) {
+                dueQueue.schedule(monitor, ScheduleJitter.firstDueAt(monitor, now));
+            }
+            log.info("Agenda carregada com {} monitores ativos.", monitors.size());
         }
 
-        log.info("Verificando {} monitores...", monitors.size());
+        //2. Thread despachante: dorme até o próximo monitor vencer e o entrega para o executor
+        dispatcher = Thread.ofVirtual().name("monitor-dispatcher").start(this::dispatchLoop);
+    }
 
-        for (Monitor monitor: monitors) {
-            long startTime = System.currentTimeMillis();
-            int statusCode = pingUrl(monitor.getUrl());
-            long endTime = System.currentTimeMillis();
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                ScheduledCheck check = dueQueue.take();
 
-            int responseTime = (int) (endTime - startTime);
-            boolean isUp = statusCode >= 200 && statusCode < 300;
+                //Se a verificação anterior deste monitor ainda está rodando (ex: acabou de ter o intervalo alterado),
+                //adia um pouco em vez de verificar o mesmo alvo duas vezes ao mesmo tempo
+                if (!inFlight.add(check.getMonitorId())) {
+                    dueQueue.reschedule(check, Instant.now().plus(IN_FLIGHT_RETRY));
+                    continue;
+                }
 
-            //Salva no banco de dados
-            //Passa o monitor, o HTTP Status Code, tempo de resposta e se houve sucesso
-            historyService.saveLog(monitor, statusCode, responseTime, isUp);
+                probeExecutor.execute(() -> runCheck(check));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); //Aplicação desligando
+            } catch (RejectedExecutionException e) {
+                return; //Executor já foi encerrado
+            }
+        }
+    }
 
-            if(isUp) {
-                log.info("^ [UP] {} ({}) - Status: {} - Tempo: {}ms",
-                        monitor.getName(), monitor.getUrl(), statusCode, responseTime);
+    /*MODO CLUSTER: reivindica os monitores que vencem nos próximos segundos e os coloca na agenda local.
+    * Cada lease vale para UMA verificação: depois dela o lease é devolvido e a próxima pode cair em qualquer nó.
+    * Assim a carga se distribui sozinha entre as instâncias e, se um nó cair, seus leases expiram e outro nó assume.*/
+    @Scheduled(fixedDelayString = "${jade.scheduler.cluster.claim-interval-ms:2000}")
+    public void claimDueMonitors() {
+        if (!clusterEnabled) {
+            return;
+        }
 
-                //INTEGRAÇÃO: se está UP, tenta resolver incidentes abertos
-                incidentService.handleUpEvent(monitor);
-            } else {
-                //Se for 0, é erro de conexão (timeout/dns). Se for > 0, é erro HTTP (500, 404)
-                String statusMsg = (statusCode == 0) ? "FALHA DE CONEXÃO" : String.valueOf(statusCode);
-                log.error("X [DOWN] {} ({}) - Status: {} - Tempo: {}ms",
-                        monitor.getName(), monitor.getUrl(), statusMsg, responseTime);
-
-                //INTEGRAÇÃO: Se está DOWN, tenta criar um incidente
-                //Formatamos uma mensagem amigável para a descrição do incidente
-                String errorReason = (statusCode == 0) ? "Timeout ou Erro de DNS" : "Erro HTTP " + statusCode;
-                incidentService.handleDownEvent(monitor, errorReason);
-                /*OPERADOR TERNÁRIO: atalho elegante para escrever 'if-else' em uma única linha
-                * Variavel = (Condição) ? Valor_se_Verdadeiro : Valor_se_Falso;
-                * ? significa "ENTÃO" e : significa "SENÃO"
-                * Se o código for 0 -> Salva "Timeout..."
-                * Se o código for 500 -> "Erro HTTP 500"*/
-            }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<Long> claimedIds = monitorRepository.claimDueMonitors(
+                nodeId, now.plus(claimLookahead), now.plus(leaseDuration), claimBatchSize);
+        if (claimedIds.isEmpty()) {
+            return;
         }
 
-        log.info("--------------- FIM DA VERIFICAÇÃO ---------------");
+        Instant nowInstant = now.toInstant();
+        //Lidos do principal: um monitor recém-criado pode ainda não ter chegado na réplica
+        List<Monitor> claimed = primaryReads.execute(status -> monitorRepository.findAllById(claimedIds));
+        for (Monitor monitor : claimed) {
+            dueQueue.schedule(monitor, ScheduleJitter.firstDueAt(monitor, nowInstant));
+        }
+        log.debug("Nó {} reivindicou {} monitores.", nodeId, claimedIds.size());
     }
 
-    //Método auxiliar simples para testar a conexão (java puro)
-    //DIFF: boolean para int
-    private int pingUrl(String urlAddress) {
-        HttpURLConnection connection = null;
-        try {
-            URL url = URI.create(urlAddress).toURL();
+    //Mantém a agenda em sincronia com o CRUD de monitores.
+    //AFTER_COMMIT: só olha para o banco depois que a alteração foi de fato gravada.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMonitorChanged(MonitorChangedEvent event) {
+        if (event.type() == MonitorChangedEvent.ChangeType.DELETED) {
+            dueQueue.remove(event.monitorId());
+            adaptiveInterval.forget(event.monitorId());
+            return;
+        }
 
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("HEAD"); //Não baixa o body
-            connection.setConnectTimeout(3000); //Espera no máx 3s para conectar
-            connection.setReadTimeout(3000);    //Espera no máx 3s para ler
+        //Do principal: a réplica pode ainda não ter a alteração que acabou de ser gravada
+        Optional<Monitor> reloaded = primaryReads.execute(status -> monitorRepository.findById(event.monitorId()));
+        if (reloaded.isEmpty() || !Boolean.TRUE.equals(reloaded.get().getIsActive())) {
+            dueQueue.remove(event.monitorId()); //Removido ou pausado: sai da agenda
+            return;
+        }
 
-            //Retorna o código real (ex: 200, 404, 500)
-            return connection.getResponseCode();
+        Monitor monitor = reloaded.get();
+        ScheduledCheck current = dueQueue.get(monitor.getId());
+        if (clusterEnabled && current == null) {
+            return; //Modo cluster: monitor que não está com lease neste nó será reivindicado quando vencer
+        }
+        if (current != null && monitor.getIntervalSeconds().equals(current.getMonitor().getIntervalSeconds())) {
+            dueQueue.refresh(monitor); //Mudou só nome/URL: mantém o horário
+        } else {
+            dueQueue.schedule(monitor, ScheduleJitter.firstDueAt(monitor, Instant.now())); //Novo, reativado ou com intervalo novo
+        }
+    }
 
+    //Executa a verificação de um monitor agendado e, no fim, agenda a próxima
+    private void runCheck(ScheduledCheck check) {
+        Monitor monitor = check.getMonitor();
+        boolean leaseHandedToWriter = false; //Modo cluster: o MonitorHistoryWriter devolve o lease junto com o last_checked
+        Instant nextDueAt = null; //Calculado com o resultado; é o mesmo valor gravado em next_check_at
+        try {
+            //Monitores diferentes com a mesma URL vencendo juntos compartilham UMA requisição (ver ProbeCoalescer)
+            ProbeResult result = probeCoalescer.execute("HEAD", monitor.getUrl(), () -> probeLimited(monitor.getUrl()));
+            if (result == null) {
+                log.warn("Fila do host de '{}' ({}) está cheia. Verificação pulada.", monitor.getName(), monitor.getUrl());
+                return;
+            }
+            //Saudável: próximo ponto da grade a partir do horário AGENDADO (não do fim da verificação),
+            //para o monitor não ir "escorregando" no tempo nem perder a fase (ver ScheduleJitter).
+            //Falhando: recheck rápido/backoff, se o modo adaptativo estiver ligado (ver AdaptiveIntervalPolicy).
+            adaptiveInterval.recordResult(monitor.getId(), result.isUp());
+            nextDueAt = adaptiveInterval.nextDue(monitor, check.getDueAt(), Instant.now());
+            leaseHandedToWriter = handleResult(monitor, result, nextDueAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); //Aplicação desligando, não verifica mais nada
         } catch (Exception e) {
-            //Se der erro de DNS, timeout ou qualquer exceção, não tem código HTTP
-            //Retorna 0 para indicar "sem resposta"
-            return 0;
+            //Um monitor com problema não pode derrubar as verificações dos outros
+            log.error("Erro inesperado ao verificar o monitor '{}': ", monitor.getName(), e);
         } finally {
-            if (connection != null) {
-                connection.disconnect(); //Garante fechamento sempre
+            inFlight.remove(check.getMonitorId());
+            if (clusterEnabled) {
+                //Lease de uma verificação só: sai da agenda local e devolve o monitor para o "pool" do cluster.
+                //Se a verificação foi registrada, o writer devolve o lease no MESMO UPDATE que grava o last_checked:
+                //devolver antes deixaria outro nó pegar o monitor com o last_checked antigo e verificá-lo de novo.
+                dueQueue.remove(check.getMonitorId());
+                if (!leaseHandedToWriter) {
+                    releaseLease(check.getMonitorId()); //Verificação pulada ou com erro: devolve na hora
+                }
+            } else {
+                //Mesmo horário que foi para o banco; verificação pulada ou com erro: calcula agora
+                dueQueue.reschedule(check, nextDueAt != null ? nextDueAt
+                        : adaptiveInterval.nextDue(check.getMonitor(), check.getDueAt(), Instant.now()));
+            }
+        }
+    }
+
+    //Requisição de verdade: ocupa uma vaga no host e outra no limite global enquanto o HTTP roda.
+    //A ORDEM IMPORTA: primeiro o host, depois o global. Quem está na fila de um host lento não segura vaga global,
+    //então um alvo degradado não consegue travar as verificações dos hosts saudáveis.
+    //Retorna null se a fila do host estiver cheia.
+    private ProbeResult probeLimited(String url) throws InterruptedException {
+        try (HostBulkhead.Permit hostPermit = hostBulkhead.acquire(url)) {
+            if (hostPermit == null) {
+                return null;
+            }
+
+            concurrencyLimit.acquire();
+            try {
+                //O join() só estaciona a virtual thread; o I/O em si é assíncrono dentro do HttpClient
+                return probeClient.probe(url).join();
+            } finally {
+                concurrencyLimit.release();
             }
         }
     }
+
+    //Resultado de UM monitor: histórico e incidentes.
+    //Retorna true se a verificação entrou na fila do histórico (e, no modo cluster, o writer vai devolver o lease)
+    //nextDueAt: próxima verificação (grade ou adaptativo), gravada em next_check_at junto com o last_checked
+    private boolean handleResult(Monitor monitor, ProbeResult result, Instant nextDueAt) throws InterruptedException {
+        int statusCode = result.statusCode();
+        int responseTime = (int) result.responseTimeMs();
+        boolean isUp = result.isUp();
+
+        //Salva no banco de dados
+        //Passa o monitor e o resultado (HTTP Status Code, tempo total e por fase, sucesso)
+        boolean recorded = historyService.saveLog(monitor, result, nextDueAt, clusterEnabled ? nodeId : null);
+        liveEventBus.publishCheck(monitor, result, monitor.getLastChecked()); //saveLog acabou de preencher o lastChecked
+
+        if(isUp) {
+            log.info("^ [UP] {} ({}) - Status: {} - Tempo: {}ms",
+                    monitor.getName(), monitor.getUrl(), statusCode, responseTime);
+
+            //INTEGRAÇÃO: se está UP, tenta resolver incidentes abertos
+            incidentService.handleUpEvent(monitor);
+        } else {
+            //Se for 0, é erro de conexão (timeout/dns). Se for > 0, é erro HTTP (500, 404)
+            String statusMsg = (statusCode == 0) ? "FALHA DE CONEXÃO" : String.valueOf(statusCode);
+            log.error("X [DOWN] {} ({}) - Status: {} - Tempo: {}ms",
+                    monitor.getName(), monitor.getUrl(), statusMsg, responseTime);
+
+            //INTEGRAÇÃO: Se está DOWN, tenta criar um incidente
+            //Formatamos uma mensagem amigável para a descrição do incidente
+            String errorReason = (statusCode == 0) ? result.errorReason() : "Erro HTTP " + statusCode;
+            incidentService.handleDownEvent(monitor, errorReason);
+            /*OPERADOR TERNÁRIO: atalho elegante para escrever 'if-else' em uma única linha
+            * Variavel = (Condição) ? Valor_se_Verdadeiro : Valor_se_Falso;
+            * ? significa "ENTÃO" e : significa "SENÃO"
+            * Se o código for 0 -> Salva o motivo classificado pelo HttpProbeClient ("Erro de DNS", "Conexão recusada"...)
+            * Se o código for 500 -> "Erro HTTP 500"*/
+        }
+        return recorded;
+    }
+
+    private void releaseLease(Long monitorId) {
+        try {
+            monitorRepository.releaseLease(monitorId, nodeId);
+        } catch (Exception e) {
+            //Sem problema: o lease expira sozinho em lease-seconds
+            log.warn("Não foi possível devolver o lease do monitor {}: {}", monitorId, e.getMessage());
+        }
+    }
+
+    /*Encerra o despachante e o executor junto com a aplicação (interrompe as verificações em andamento).
+    * ORDEM DO SHUTDOWN: o scheduler depende (pelo construtor) do MonitorHistoryService e este do MonitorHistoryWriter,
+    * então o Spring chama este @PreDestroy ANTES do shutdown do writer. Por isso esperamos as verificações em
+    * andamento terminarem aqui: as que já têm resultado ainda entram na fila e saem no dreno final do writer.
+    * Uma requisição parada no join() não é interrompida, mas termina em no máx request-timeout-ms.*/
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        probeExecutor.shutdownNow();
+        if (!probeExecutor.awaitTermination(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Verificações ainda em andamento após {}s de shutdown. Seguindo sem elas.", SHUTDOWN_GRACE.toSeconds());
+        }
+        if (clusterEnabled) {
+            //Devolve os leases pendentes para outro nó assumir na hora, sem esperar expirar
+            monitorRepository.releaseAllLeases(nodeId);
+        }
+    }
 }
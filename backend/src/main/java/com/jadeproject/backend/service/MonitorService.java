@@ -1,14 +1,20 @@
 package com.jadeproject.backend.service;
 
 import com.jadeproject.backend.dto.MonitorUpdateDTO;
+import com.jadeproject.backend.event.MonitorChangedEvent;
+import com.jadeproject.backend.event.MonitorChangedEvent.ChangeType;
 import com.jadeproject.backend.exception.DataConflictException;
 import com.jadeproject.backend.exception.ResourceNotFoundException;
 import com.jadeproject.backend.model.Monitor;
 import com.jadeproject.backend.model.User;
 import com.jadeproject.backend.repository.MonitorRepository;
+import com.jadeproject.backend.status.CurrentStatusRepository;
+import com.jadeproject.backend.status.DashboardEntry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
@@ -21,12 +27,18 @@ public class MonitorService {
 
     private final MonitorRepository monitorRepository;
     private final UserService userService; //Precisa validar se o dono existe!
+    private final ApplicationEventPublisher eventPublisher; //Avisa o scheduler sobre mudanças na agenda
+    private final CurrentStatusRepository currentStatusRepository; //Estado atual dos monitores (dashboard)
     private static final int MIN_INTERVAL_SECONDS = 30;
     private static final int MAX_INTERVAL_SECONDS = 86400;
 
-    public MonitorService(MonitorRepository monitorRepository, UserService userService) {
+    public MonitorService(MonitorRepository monitorRepository, UserService userService,
+                          ApplicationEventPublisher eventPublisher,
+                          CurrentStatusRepository currentStatusRepository) {
         this.monitorRepository = monitorRepository;
         this.userService = userService;
+        this.eventPublisher = eventPublisher;
+        this.currentStatusRepository = currentStatusRepository;
     }
 
     /*Lógica: um usuário não pode ter dois monitores com nomes iguais,mas dois usuários podem ter monitores com nome em comum.
@@ -62,18 +74,26 @@ public class MonitorService {
         monitor.setUser(user);
         monitor.setCreatedAt(OffsetDateTime.now(ZoneOffset.UTC));
         log.info("Criando monitor '{}' para o usuário {}", monitor.getName(), user.getUsername());
-        return monitorRepository.save(monitor);
+        Monitor saved = monitorRepository.save(monitor);
+        scheduleNextCheck(saved);
+        eventPublisher.publishEvent(new MonitorChangedEvent(saved.getId(), ChangeType.CREATED));
+        return saved;
     }
 
     public List<Monitor> findAllByUserId(Long userId) { return monitorRepository.findByUserId(userId); }
 
     public Optional<Monitor> findById(Long id) { return monitorRepository.findById(id); }
 
+    //Dashboard: todos os monitores do usuário com o estado atual, numa consulta (pool de leitura)
+    @Transactional(readOnly = true)
+    public List<DashboardEntry> getDashboard(Long userId) { return currentStatusRepository.findDashboard(userId); }
+
     //Método para deletar (CRUD)
     @Transactional
     public void deleteMonitor(Long id) {
         if (monitorRepository.existsById(id)) {
             monitorRepository.deleteById(id);
+            eventPublisher.publishEvent(new MonitorChangedEvent(id, ChangeType.DELETED));
         } else {
             throw new ResourceNotFoundException("Monitor não encontrado para exclusão.");
         }
@@ -105,14 +125,32 @@ public class MonitorService {
         }
 
         //Outros campos simples (sem validação de duplicidade)
+        //Intervalo novo ou monitor reativado: a próxima verificação (next_check_at) precisa ser recalculada
+        boolean reschedule = false;
         if (dto.getIntervalSeconds() != null) {
+            reschedule = !dto.getIntervalSeconds().equals(monitor.getIntervalSeconds());
             monitor.setIntervalSeconds(dto.getIntervalSeconds());
         }
         if (dto.getIsActive() != null) {
+            reschedule |= dto.getIsActive() && !Boolean.TRUE.equals(monitor.getIsActive());
             monitor.setIsActive(dto.getIsActive());
         }
+        if (dto.getStorageMode() != null) {
+            monitor.setStorageMode(dto.getStorageMode());
+        }
+
+        Monitor saved = monitorRepository.save(monitor);
+        if (reschedule) {
+            scheduleNextCheck(saved);
+        }
+        eventPublisher.publishEvent(new MonitorChangedEvent(saved.getId(), ChangeType.UPDATED));
+        return saved;
+    }
 
-        return monitorRepository.save(monitor);
+    //Grava o next_check_at (usado pelo claim do modo cluster) com a mesma regra da agenda em memória
+    private void scheduleNextCheck(Monitor monitor) {
+        Instant nextCheckAt = ScheduleJitter.firstDueAt(monitor, Instant.now());
+        monitorRepository.scheduleNextCheck(monitor.getId(), nextCheckAt.atOffset(ZoneOffset.UTC));
     }
 
     public List<Monitor> getAllMonitors() {
@@ -0,0 +1,62 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.model.Monitor;
+
+import java.time.Instant;
+
+/*Espalha as verificações dos monitores ao longo do intervalo deles (evita o "thundering herd").
+*
+* PROBLEMA: monitores criados juntos (DataLoader, importação em massa) com o mesmo intervalo ficavam alinhados para sempre,
+* disparando todos no mesmo segundo: pico de sockets, de escrita no banco e de chamadas ao IncidentService a cada intervalo.
+*
+* SOLUÇÃO: cada monitor ganha uma FASE fixa dentro do intervalo, calculada só a partir do ID.
+* As verificações acontecem sempre nos pontos da "grade" do monitor: fase, fase + intervalo, fase + 2*intervalo...
+* (contados a partir da época Unix). Como a fase não depende de quando a aplicação subiu, o espalhamento sobrevive a restarts.*/
+public final class ScheduleJitter {
+
+    //Monitores novos ou atrasados (ex: aplicação ficou fora do ar) não esperam um intervalo inteiro (até 1 dia!)
+    //para a primeira verificação: são espalhados dentro desta janela e depois entram na grade normalmente
+    private static final long CATCH_UP_WINDOW_MS = 60_000;
+
+    //Constante da razão áurea em 64 bits
+    private static final long GOLDEN_RATIO_64 = 0x9E3779B97F4A7C15L;
+
+    private ScheduleJitter() {
+    }
+
+    /*Fase do monitor dentro de uma janela, em ms.
+    * Usa a sequência de Weyl (id * razão áurea, parte fracionária): IDs consecutivos, justamente o caso da criação em massa,
+    * caem em posições bem distribuídas na janela (mais uniforme que um hash aleatório, que pode agrupar alguns por azar).*/
+    public static long phaseMillis(long monitorId, long windowMs) {
+        double fraction = ((monitorId * GOLDEN_RATIO_64) >>> 11) / (double) (1L << 53); //[0, 1)
+        return (long) (fraction * windowMs);
+    }
+
+    //Primeiro ponto da grade do monitor estritamente depois de 'after'
+    public static Instant nextSlotAfter(long monitorId, int intervalSeconds, Instant after) {
+        long intervalMs = intervalSeconds * 1000L;
+        long phase = phaseMillis(monitorId, intervalMs);
+        long slotIndex = Math.floorDiv(after.toEpochMilli() - phase, intervalMs) + 1;
+        return Instant.ofEpochMilli(slotIndex * intervalMs + phase);
+    }
+
+    //Próxima verificação de um monitor recém-carregado (startup, criação, reativação ou troca de intervalo)
+    public static Instant firstDueAt(Monitor monitor, Instant now) {
+        if (monitor.getLastChecked() != null) {
+            Instant slot = nextSlotAfter(monitor.getId(), monitor.getIntervalSeconds(), monitor.getLastChecked().toInstant());
+            if (!slot.isBefore(now)) {
+                return slot;
+            }
+        }
+        //Nunca rodou ou já está atrasado: espalha dentro da janela de recuperação
+        long windowMs = Math.min(monitor.getIntervalSeconds() * 1000L, CATCH_UP_WINDOW_MS);
+        return now.plusMillis(phaseMillis(monitor.getId(), windowMs));
+    }
+
+    //Próxima verificação depois de uma execução que estava agendada para 'dueAt'
+    public static Instant nextDueAfterRun(Monitor monitor, Instant dueAt, Instant now) {
+        Instant slot = nextSlotAfter(monitor.getId(), monitor.getIntervalSeconds(), dueAt);
+        //Se a verificação demorou tanto que passou do próximo ponto, pula para o seguinte (não acumula atraso)
+        return slot.isBefore(now) ? nextSlotAfter(monitor.getId(), monitor.getIntervalSeconds(), now) : slot;
+    }
+}
@@ -0,0 +1,8 @@
+package com.jadeproject.backend.status;
+
+import java.time.OffsetDateTime;
+
+//Última verificação de um monitor, como vai para monitor_current_status
+public record CheckStatus(long monitorId, OffsetDateTime checkedAt, int statusCode, Integer latencyMs,
+                          boolean successful) {
+}
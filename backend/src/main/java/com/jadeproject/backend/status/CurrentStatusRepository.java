@@ -0,0 +1,103 @@
+package com.jadeproject.backend.status;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+//Acesso à tabela monitor_current_status (migração V12)
+@Repository
+public class CurrentStatusRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CurrentStatusRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*Grava a última verificação de cada monitor do lote (um item por monitor).
+    * O WHERE do ON CONFLICT impede que um lote atrasado volte o estado para trás.
+    * O EXISTS pula monitores excluídos enquanto a verificação estava na fila (senão a FK derrubaria o lote inteiro).*/
+    public void upsertChecks(Collection<CheckStatus> checks) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO monitor_current_status (monitor_id, checked_at, status_code, latency_ms, is_successful)
+                        SELECT ?, ?, ?, ?, ?
+                        WHERE EXISTS (SELECT 1 FROM monitors WHERE id = ?)
+                        ON CONFLICT (monitor_id) DO UPDATE SET
+                            checked_at = EXCLUDED.checked_at,
+                            status_code = EXCLUDED.status_code,
+                            latency_ms = EXCLUDED.latency_ms,
+                            is_successful = EXCLUDED.is_successful
+                        WHERE monitor_current_status.checked_at IS NULL
+                           OR monitor_current_status.checked_at <= EXCLUDED.checked_at
+                        """,
+                new ArrayList<>(checks), 500, (ps, check) -> {
+                    ps.setLong(1, check.monitorId());
+                    ps.setTimestamp(2, Timestamp.from(check.checkedAt().toInstant()));
+                    ps.setInt(3, check.statusCode());
+                    ps.setObject(4, check.latencyMs(), Types.INTEGER);
+                    ps.setBoolean(5, check.successful());
+                    ps.setLong(6, check.monitorId());
+                });
+    }
+
+    //Incidente aberto. Roda na transação de quem chamou (a mesma que gravou o incidente)
+    public void setOpenIncident(long monitorId, long incidentId) {
+        jdbcTemplate.update("""
+                        INSERT INTO monitor_current_status (monitor_id, open_incident_id)
+                        VALUES (?, ?)
+                        ON CONFLICT (monitor_id) DO UPDATE SET open_incident_id = EXCLUDED.open_incident_id
+                        """,
+                monitorId, incidentId);
+    }
+
+    //Incidente resolvido: só limpa se ainda for ele o incidente aberto
+    public void clearOpenIncident(long monitorId, long incidentId) {
+        jdbcTemplate.update(
+                "UPDATE monitor_current_status SET open_incident_id = NULL WHERE monitor_id = ? AND open_incident_id = ?",
+                monitorId, incidentId);
+    }
+
+    //Dashboard do usuário numa consulta só: todos os monitores dele com o estado atual e o incidente aberto
+    public List<DashboardEntry> findDashboard(long userId) {
+        return jdbcTemplate.query("""
+                        SELECT m.id, m.name, m.url, m.is_active, m.interval_seconds,
+                               s.checked_at, s.status_code, s.latency_ms, s.is_successful,
+                               i.id AS incident_id, i.title, i.severity, i.description, i.created_at
+                        FROM monitors m
+                        LEFT JOIN monitor_current_status s ON s.monitor_id = m.id
+                        LEFT JOIN incidents i ON i.id = s.open_incident_id
+                        WHERE m.user_id = ?
+                        ORDER BY m.id
+                        """,
+                (rs, rowNum) -> new DashboardEntry(
+                        rs.getLong("id"),
+                        rs.getString("name"),
+                        rs.getString("url"),
+                        (Boolean) rs.getObject("is_active"),
+                        (Integer) rs.getObject("interval_seconds"),
+                        toOffsetDateTime(rs, "checked_at"),
+                        (Integer) rs.getObject("status_code"),
+                        (Integer) rs.getObject("latency_ms"),
+                        (Boolean) rs.getObject("is_successful"),
+                        (Long) rs.getObject("incident_id"),
+                        rs.getString("title"),
+                        rs.getString("severity"),
+                        rs.getString("description"),
+                        toOffsetDateTime(rs, "created_at")),
+                userId);
+    }
+
+    private static OffsetDateTime toOffsetDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        return value == null ? null : value.toInstant().atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,10 @@
+package com.jadeproject.backend.status;
+
+import java.time.OffsetDateTime;
+
+//Uma linha do dashboard: o monitor, a última verificação (null se nunca verificado) e o incidente aberto (null se não há)
+public record DashboardEntry(long monitorId, String name, String url, Boolean isActive, Integer intervalSeconds,
+                             OffsetDateTime lastCheckedAt, Integer statusCode, Integer latencyMs, Boolean isSuccessful,
+                             Long incidentId, String incidentTitle, String incidentSeverity,
+                             String incidentDescription, OffsetDateTime incidentCreatedAt) {
+}
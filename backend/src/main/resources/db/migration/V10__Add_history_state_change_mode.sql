@@ -0,0 +1,33 @@
+-- V10__Add_history_state_change_mode.sql
+-- Modo de armazenamento por monitor:
+--   FULL         -> uma linha em monitor_history por verificação (comportamento de sempre);
+--   STATE_CHANGE -> linha completa só quando o status muda. As verificações repetidas seguintes viram "runs".
+ALTER TABLE monitors
+    ADD COLUMN storage_mode VARCHAR(20) NOT NULL DEFAULT 'FULL'
+        CHECK (storage_mode IN ('FULL', 'STATE_CHANGE'));
+
+-- Um run resume verificações SEGUIDAS com o mesmo status, dentro de UMA hora (UTC).
+--   state_since: checked_at da linha de monitor_history que abriu o estado (a "mudança de status");
+--   latência no mesmo formato dos rollups (V8), para o rollup de 1 hora somar os runs direto.
+-- Um estado estável por 3 dias vira 1 linha em monitor_history + ~72 runs, em vez de milhares de linhas.
+CREATE TABLE monitor_history_run
+(
+    monitor_id     BIGINT      NOT NULL REFERENCES monitors (id) ON DELETE CASCADE,
+    started_at     TIMESTAMPTZ NOT NULL, -- primeira verificação do run
+    ended_at       TIMESTAMPTZ NOT NULL, -- última verificação do run
+    state_since    TIMESTAMPTZ NOT NULL,
+    status_code    INT         NOT NULL,
+    is_successful  BOOLEAN     NOT NULL,
+    check_count    INT         NOT NULL,
+    latency_count  INT         NOT NULL,
+    latency_min    INT,
+    latency_max    INT,
+    latency_sum    BIGINT      NOT NULL,
+    latency_sketch BYTEA       NOT NULL,
+    PRIMARY KEY (monitor_id, started_at)
+);
+
+-- Leitura do histórico: runs de um conjunto de linhas (state_since) de um monitor
+CREATE INDEX idx_monitor_history_run_state ON monitor_history_run (monitor_id, state_since);
+-- Rollup de 1 hora e retenção percorrem por tempo, de todos os monitores
+CREATE INDEX idx_monitor_history_run_started ON monitor_history_run USING brin (started_at);
@@ -0,0 +1,20 @@
+-- V11__Add_monitor_next_check_at.sql
+-- Horário da próxima verificação de cada monitor, gravado em vez de calculado.
+-- Antes, o claim do modo cluster filtrava por last_checked + make_interval(secs => interval_seconds), uma expressão
+-- que nenhum índice cobre: varria a tabela inteira a cada claim, mesmo com poucos monitores vencendo.
+-- Agora é uma busca por faixa no índice parcial abaixo, já na ordem de urgência (next_check_at crescente).
+--
+-- Mantido pela aplicação (coluna NÃO mapeada na entidade Monitor, como os leases da V4):
+--   - a cada verificação, junto com o last_checked (MonitorRepository.markChecked);
+--   - na criação, troca de intervalo e reativação (MonitorService -> MonitorRepository.scheduleNextCheck).
+-- DEFAULT CURRENT_TIMESTAMP: monitor inserido sem o valor já nasce vencido.
+ALTER TABLE monitors
+    ADD COLUMN next_check_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+UPDATE monitors
+SET next_check_at = COALESCE(last_checked + make_interval(secs => interval_seconds), CURRENT_TIMESTAMP);
+
+-- Parcial: monitores pausados não entram no índice (nem no claim).
+-- Custo: como next_check_at muda a cada verificação, esses UPDATEs deixam de ser HOT (ver V6). É o preço de não varrer
+-- a tabela no claim; o fillfactor 90 continua ajudando a manter a nova versão na mesma página.
+CREATE INDEX idx_monitors_next_check_at ON monitors (next_check_at) WHERE is_active;
@@ -0,0 +1,53 @@
+-- V12__Create_monitor_current_status.sql
+-- Estado ATUAL de cada monitor numa tabela estreita (uma linha por monitor), para o dashboard.
+-- Antes, montar o dashboard de um usuário custava 2N+1 requisições: a lista de monitores e, para cada um,
+-- /history/recent e /incidents. Agora é uma consulta só (monitors + esta tabela + o incidente aberto).
+--
+-- Mantida pela aplicação:
+--   - checked_at / status_code / latency_ms / is_successful: última verificação, a cada lote do MonitorHistoryWriter
+--     (todas as verificações, inclusive as que o modo STATE_CHANGE só soma nos runs);
+--   - open_incident_id: pelo IncidentService, na mesma transação que abre ou resolve o incidente.
+CREATE TABLE monitor_current_status
+(
+    monitor_id       BIGINT PRIMARY KEY REFERENCES monitors (id) ON DELETE CASCADE,
+    checked_at       TIMESTAMPTZ, -- NULL: monitor com incidente aberto mas ainda sem verificação registrada aqui
+    status_code      INT,
+    latency_ms       INT,
+    is_successful    BOOLEAN,
+    open_incident_id BIGINT REFERENCES incidents (id) ON DELETE SET NULL
+) WITH (fillfactor = 70);
+-- Cada verificação reescreve a linha. Sem índice além da PK (que nunca muda), os UPDATEs são HOT (ver V6);
+-- o fillfactor 70 deixa espaço na página para as novas versões.
+
+-- Carga inicial: última verificação de cada monitor, a mais nova entre
+--   - a última linha ainda na camada quente (uma busca no índice por monitor) e
+--   - o último run (PK: monitor_id, started_at). No modo STATE_CHANGE um monitor estável tem uma linha só em
+--     monitor_history, lá do início do estado; a verificação mais recente está no ended_at do run.
+--     O run não guarda a latência de cada verificação: usamos a média dele até a próxima verificação chegar.
+INSERT INTO monitor_current_status (monitor_id, checked_at, status_code, latency_ms, is_successful)
+SELECT m.id, latest.checked_at, latest.status_code, latest.latency_ms, latest.is_successful
+FROM monitors m
+CROSS JOIN LATERAL (
+    SELECT checked_at, status_code, latency_ms, is_successful
+    FROM ((SELECT checked_at, status_code, latency_ms, is_successful
+           FROM monitor_history
+           WHERE monitor_id = m.id
+           ORDER BY checked_at DESC
+           LIMIT 1)
+          UNION ALL
+          (SELECT ended_at, status_code, round(latency_sum::numeric / NULLIF(latency_count, 0))::int, is_successful
+           FROM monitor_history_run
+           WHERE monitor_id = m.id
+           ORDER BY started_at DESC
+           LIMIT 1)) candidates
+    ORDER BY checked_at DESC
+    LIMIT 1
+) latest;
+
+-- ...e os incidentes abertos (o mais recente, se houver mais de um)
+INSERT INTO monitor_current_status (monitor_id, open_incident_id)
+SELECT DISTINCT ON (monitor_id) monitor_id, id
+FROM incidents
+WHERE status = 'OPEN'
+ORDER BY monitor_id, created_at DESC
+ON CONFLICT (monitor_id) DO UPDATE SET open_incident_id = EXCLUDED.open_incident_id;
@@ -0,0 +1,36 @@
+-- V13__Add_lock_timeout_to_history_drop.sql
+-- O DROP de uma partição precisa de ACCESS EXCLUSIVE. Se uma leitura longa (ex: exportação) estiver usando a partição,
+-- o DROP fica na fila do lock e TODO mundo que chega depois (os INSERTs do histórico, no pai) fica na fila atrás dele.
+-- Com lock_timeout, a retenção desiste daquela partição depois de 3s e tenta de novo no próximo ciclo da manutenção;
+-- as outras partições do ciclo continuam caindo normalmente (cada DROP é uma subtransação própria).
+CREATE OR REPLACE FUNCTION monitor_history_drop_partitions(retention_days INT) RETURNS INT
+    LANGUAGE plpgsql
+    SET lock_timeout = '3s'
+AS
+$$
+DECLARE
+    cutoff    DATE := (now() AT TIME ZONE 'UTC')::date - retention_days;
+    part      RECORD;
+    dropped   INT  := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('monitor_history_partitions'));
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'monitor_history'::regclass
+          AND c.relname ~ '^monitor_history_p[0-9]{8}$'
+    LOOP
+        IF to_date(substring(part.relname FROM 18), 'YYYYMMDD') < cutoff THEN
+            BEGIN
+                EXECUTE format('DROP TABLE %I', part.relname);
+                dropped := dropped + 1;
+            EXCEPTION
+                WHEN lock_not_available THEN
+                    RAISE WARNING 'Partição % em uso; a retenção tenta de novo no próximo ciclo.', part.relname;
+            END;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$;
@@ -0,0 +1,7 @@
+-- V14__Rename_ttfb_to_request_ms.sql
+-- ttfb_ms media do envio da requisição até os headers da resposta. Quando o HttpClient não tem conexão pronta no pool,
+-- ele abre uma nesse meio tempo, então a conexão TCP e o TLS entram no valor: não é o TTFB do servidor.
+-- O Java 21 não informa se a conexão foi reaproveitada, então a coluna passa a ter o nome do que ela mede.
+-- RENAME COLUMN na tabela particionada renomeia nas partições também (só catálogo, sem reescrever dados).
+ALTER TABLE monitor_history
+    RENAME COLUMN ttfb_ms TO request_ms;
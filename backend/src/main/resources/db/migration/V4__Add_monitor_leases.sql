@@ -0,0 +1,8 @@
+-- V4__Add_monitor_leases.sql
+-- Lease (posse temporária) de monitores para rodar o scheduler em vários nós.
+-- Cada nó reivindica um lote de monitores que estão vencendo (SELECT ... FOR UPDATE SKIP LOCKED), grava seu ID em lease_owner
+-- e a validade em lease_until. Se o nó cair, o lease expira e outro nó assume o monitor.
+-- As colunas NÃO são mapeadas na entidade Monitor: são controladas apenas pelas queries nativas do MonitorRepository.
+ALTER TABLE monitors
+    ADD COLUMN lease_owner VARCHAR(100),
+    ADD COLUMN lease_until TIMESTAMPTZ;
@@ -0,0 +1,9 @@
+-- V5__Add_history_phase_timings.sql
+-- Quebra da latência de cada verificação por fase (DNS, conexão TCP, handshake TLS, primeiro byte).
+-- Colunas nulas: no PostgreSQL, NULL só ocupa um bit no bitmap da linha, então fases não medidas não custam espaço.
+-- ADD COLUMN sem DEFAULT só altera o catálogo (não reescreve a tabela).
+ALTER TABLE monitor_history
+    ADD COLUMN dns_ms INTEGER,
+    ADD COLUMN connect_ms INTEGER,
+    ADD COLUMN tls_ms INTEGER,
+    ADD COLUMN ttfb_ms INTEGER;
@@ -0,0 +1,14 @@
+-- V6__Tune_monitors_for_hot_updates.sql
+-- A tabela monitors é atualizada a cada lote de verificações (last_checked, lease_owner, lease_until).
+-- No PostgreSQL, todo UPDATE cria uma nova versão da linha. Se nenhuma coluna INDEXADA muda e há espaço livre
+-- na mesma página, o update é "HOT" (Heap-Only Tuple): não mexe em índice nenhum e a versão antiga é limpa
+-- pela própria página, sem esperar o VACUUM.
+
+-- 1. O índice em last_checked impedia os updates HOT. Ele servia ao antigo polling (findMonitorsToProcess),
+--    que não existe mais: a agenda fica em memória e o claim do modo cluster não consegue usá-lo
+--    (o filtro é last_checked + interval_seconds).
+DROP INDEX IF EXISTS idx_monitors_last_checked;
+
+-- 2. Deixa 10% de cada página livre para as novas versões das linhas caberem na mesma página.
+--    Vale para as páginas escritas daqui para frente (as existentes se ajustam com o tempo ou com VACUUM FULL).
+ALTER TABLE monitors SET (fillfactor = 90);
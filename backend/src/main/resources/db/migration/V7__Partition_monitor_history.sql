@@ -0,0 +1,149 @@
+-- V7__Partition_monitor_history.sql
+-- Converte monitor_history em tabela PARTICIONADA por intervalo (RANGE) de checked_at, uma partição por dia (UTC).
+--   - Retenção: apagar dados antigos vira DROP de partições inteiras (instantâneo, sem DELETE nem VACUUM);
+--   - Índices: cada partição tem o próprio índice, pequeno, em vez de um índice único que só cresce;
+--   - Consultas com filtro em checked_at só leem as partições do período (partition pruning).
+-- As partições futuras são criadas pelo job MonitorHistoryPartitionMaintenance (funções no fim deste arquivo).
+
+-- 1. Tira a tabela antiga do caminho. O sequence dos IDs é reaproveitado pela tabela nova,
+--    então ele deixa de "pertencer" à tabela antiga (senão seria apagado junto com ela).
+ALTER TABLE monitor_history RENAME TO monitor_history_legacy;
+ALTER TABLE monitor_history_legacy RENAME CONSTRAINT monitor_history_pkey TO monitor_history_legacy_pkey;
+ALTER INDEX idx_monitor_history_monitor_checked RENAME TO idx_monitor_history_legacy_monitor_checked;
+ALTER SEQUENCE monitor_history_id_seq OWNED BY NONE;
+
+-- 2. Tabela nova, particionada. Em tabela particionada a PK precisa conter a chave de partição: (id, checked_at).
+--    checked_at passa a ser NOT NULL (toda linha precisa cair em alguma partição).
+CREATE TABLE monitor_history
+(
+    id            BIGINT      NOT NULL DEFAULT nextval('monitor_history_id_seq'),
+    monitor_id    BIGINT      NOT NULL REFERENCES monitors (id) ON DELETE CASCADE,
+    status_code   INT,
+    latency_ms    INT,
+    is_successful BOOLEAN,
+    checked_at    TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    dns_ms        INT,
+    connect_ms    INT,
+    tls_ms        INT,
+    ttfb_ms       INT,
+    PRIMARY KEY (id, checked_at)
+) PARTITION BY RANGE (checked_at);
+
+ALTER SEQUENCE monitor_history_id_seq OWNED BY monitor_history.id;
+
+-- Índice "particionado": o PostgreSQL cria um índice em cada partição, atual e futura
+CREATE INDEX idx_monitor_history_monitor_checked ON monitor_history (monitor_id, checked_at DESC);
+
+-- Rede de segurança: linhas fora de qualquer partição diária (ex: job de manutenção parado) caem aqui em vez de
+-- dar erro no INSERT. A função de manutenção move essas linhas para a partição certa quando ela é criada.
+CREATE TABLE monitor_history_default PARTITION OF monitor_history DEFAULT;
+
+-- 3. Cria (se ainda não existir) a partição do dia 'part_day' (UTC): monitor_history_pYYYYMMDD.
+--    Se a partição default tiver linhas desse dia, elas são movidas para a partição nova
+--    (o PostgreSQL não deixa criar a partição enquanto a default tiver linhas do intervalo dela).
+CREATE FUNCTION monitor_history_create_partition(part_day DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_name TEXT        := format('monitor_history_p%s', to_char(part_day, 'YYYYMMDD'));
+    lower_bound    TIMESTAMPTZ := part_day::timestamp AT TIME ZONE 'UTC';
+    upper_bound    TIMESTAMPTZ := (part_day + 1)::timestamp AT TIME ZONE 'UTC';
+    has_orphans    BOOLEAN;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    SELECT EXISTS (SELECT 1 FROM monitor_history_default WHERE checked_at >= lower_bound AND checked_at < upper_bound)
+    INTO has_orphans;
+
+    IF has_orphans THEN
+        ALTER TABLE monitor_history DETACH PARTITION monitor_history_default;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I PARTITION OF monitor_history FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, lower_bound, upper_bound);
+
+    IF has_orphans THEN
+        EXECUTE format('INSERT INTO %I SELECT * FROM monitor_history_default WHERE checked_at >= %L AND checked_at < %L',
+                       partition_name, lower_bound, upper_bound);
+        DELETE FROM monitor_history_default WHERE checked_at >= lower_bound AND checked_at < upper_bound;
+        ALTER TABLE monitor_history ATTACH PARTITION monitor_history_default DEFAULT;
+    END IF;
+
+    RETURN TRUE;
+END;
+$$;
+
+-- 4. Garante as partições de hoje até 'days_ahead' dias no futuro. Devolve quantas foram criadas.
+--    O advisory lock serializa a manutenção entre nós do cluster (todos rodam o mesmo job).
+CREATE FUNCTION monitor_history_ensure_partitions(days_ahead INT) RETURNS INT
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    today   DATE := (now() AT TIME ZONE 'UTC')::date;
+    created INT  := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('monitor_history_partitions'));
+    FOR i IN 0..days_ahead LOOP
+        IF monitor_history_create_partition(today + i) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- 5. Retenção: apaga as partições diárias cujo dia inteiro é mais antigo que 'retention_days'. Devolve quantas caíram.
+CREATE FUNCTION monitor_history_drop_partitions(retention_days INT) RETURNS INT
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    cutoff    DATE := (now() AT TIME ZONE 'UTC')::date - retention_days;
+    part      RECORD;
+    dropped   INT  := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('monitor_history_partitions'));
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'monitor_history'::regclass
+          AND c.relname ~ '^monitor_history_p[0-9]{8}$'
+    LOOP
+        IF to_date(substring(part.relname FROM 18), 'YYYYMMDD') < cutoff THEN
+            EXECUTE format('DROP TABLE %I', part.relname);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$;
+
+-- 6. Copia os dados antigos: cria as partições do período que já existe e move as linhas.
+DO
+$$
+DECLARE
+    first_day  DATE;
+    target_day DATE;
+BEGIN
+    SELECT (min(checked_at) AT TIME ZONE 'UTC')::date INTO first_day FROM monitor_history_legacy;
+    IF first_day IS NOT NULL THEN
+        target_day := first_day;
+        WHILE target_day < (now() AT TIME ZONE 'UTC')::date LOOP
+            PERFORM monitor_history_create_partition(target_day);
+            target_day := target_day + 1;
+        END LOOP;
+    END IF;
+    PERFORM monitor_history_ensure_partitions(7);
+END;
+$$;
+
+-- Linhas antigas sem checked_at (a coluna era opcional) recebem o horário da migração
+INSERT INTO monitor_history (id, monitor_id, status_code, latency_ms, is_successful, checked_at,
+                             dns_ms, connect_ms, tls_ms, ttfb_ms)
+SELECT id, monitor_id, status_code, latency_ms, is_successful, COALESCE(checked_at, CURRENT_TIMESTAMP),
+       dns_ms, connect_ms, tls_ms, ttfb_ms
+FROM monitor_history_legacy;
+
+DROP TABLE monitor_history_legacy;
@@ -0,0 +1,41 @@
+-- V8__Create_history_rollups.sql
+-- Rollups do histórico: um agregado por monitor e por balde de tempo, em três resoluções (1 minuto, 1 hora, 1 dia).
+-- Preenchidos pelo MonitorRollupJob. latency_sketch é um histograma logarítmico serializado (LatencySketch),
+-- que permite estimar percentis e ser somado de uma resolução para a outra.
+-- As latências (min/max/sum/sketch) só consideram verificações que tiveram resposta HTTP (latency_count).
+
+CREATE TABLE monitor_rollup_1m
+(
+    monitor_id     BIGINT      NOT NULL REFERENCES monitors (id) ON DELETE CASCADE,
+    bucket_start   TIMESTAMPTZ NOT NULL,
+    check_count    INT         NOT NULL,
+    success_count  INT         NOT NULL,
+    latency_count  INT         NOT NULL,
+    latency_min    INT,
+    latency_max    INT,
+    latency_sum    BIGINT      NOT NULL,
+    latency_sketch BYTEA       NOT NULL,
+    PRIMARY KEY (monitor_id, bucket_start)
+);
+
+CREATE TABLE monitor_rollup_1h (LIKE monitor_rollup_1m INCLUDING ALL);
+ALTER TABLE monitor_rollup_1h ADD FOREIGN KEY (monitor_id) REFERENCES monitors (id) ON DELETE CASCADE;
+
+CREATE TABLE monitor_rollup_1d (LIKE monitor_rollup_1m INCLUDING ALL);
+ALTER TABLE monitor_rollup_1d ADD FOREIGN KEY (monitor_id) REFERENCES monitors (id) ON DELETE CASCADE;
+
+-- O job lê "todos os monitores de um período" (sem monitor_id). Como as linhas chegam em ordem de tempo,
+-- um índice BRIN (guarda só o min/max de cada bloco de páginas) resolve com poucos KB.
+CREATE INDEX idx_monitor_rollup_1m_bucket ON monitor_rollup_1m USING brin (bucket_start);
+CREATE INDEX idx_monitor_rollup_1h_bucket ON monitor_rollup_1h USING brin (bucket_start);
+CREATE INDEX idx_monitor_history_checked_brin ON monitor_history USING brin (checked_at);
+
+-- Marca d'água: até onde (exclusivo) cada resolução já foi agregada. NULL = nunca rodou
+CREATE TABLE rollup_watermark
+(
+    granularity     VARCHAR(10) PRIMARY KEY,
+    processed_until TIMESTAMPTZ
+);
+
+INSERT INTO rollup_watermark (granularity)
+VALUES ('MINUTE'), ('HOUR'), ('DAY');
@@ -0,0 +1,19 @@
+-- V9__Create_history_segments.sql
+-- Camada fria do histórico: as verificações de UM monitor em UM dia, codificadas em colunas e comprimidas
+-- (HistorySegmentCodec). Preenchida pelo HistorySegmentCompactor a partir das partições diárias antigas
+-- de monitor_history, que são apagadas em seguida.
+CREATE TABLE monitor_history_segment
+(
+    monitor_id       BIGINT      NOT NULL REFERENCES monitors (id) ON DELETE CASCADE,
+    segment_day      DATE        NOT NULL, -- dia em UTC, o mesmo da partição de origem
+    row_count        INT         NOT NULL, -- permite paginar sem descomprimir
+    first_checked_at TIMESTAMPTZ NOT NULL,
+    last_checked_at  TIMESTAMPTZ NOT NULL,
+    data             BYTEA       NOT NULL,
+    PRIMARY KEY (monitor_id, segment_day)
+);
+
+-- Os dados já vêm comprimidos (Deflate): EXTERNAL evita que o TOAST tente comprimir de novo.
+-- O índice de retenção (DELETE ... WHERE segment_day < ?) usa BRIN, já que os segmentos são gravados em ordem de dia.
+ALTER TABLE monitor_history_segment ALTER COLUMN data SET STORAGE EXTERNAL;
+CREATE INDEX idx_monitor_history_segment_day ON monitor_history_segment USING brin (segment_day);
@@ -0,0 +1,62 @@
+package com.jadeproject.backend.probe;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolver.LookupPolicy;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DnsCacheTest {
+
+    private static final LookupPolicy IPV4 = LookupPolicy.of(LookupPolicy.IPV4);
+
+    private final DnsCache cache = DnsCache.getInstance(); //Singleton da JVM: os testes olham só a diferença
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private final InetAddressResolver delegate = new InetAddressResolver() {
+        @Override
+        public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+            resolutions.incrementAndGet();
+            return Stream.of(InetAddress.getByAddress(host, new byte[]{10, 0, 0, 1}));
+        }
+
+        @Override
+        public String lookupByAddress(byte[] addr) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Test
+    void probeLookupFollowedByClientLookupCountsOnce() throws UnknownHostException {
+        String host = UUID.randomUUID() + ".example";
+        long hits = cache.hitCount();
+        long misses = cache.missCount();
+
+        //Verificação: miss de verdade. HttpClient abrindo a conexão logo depois: vem do cache sem contar hit
+        cache.lookup(host, IPV4, delegate, true);
+        cache.lookup(host, IPV4, delegate, false);
+
+        assertThat(resolutions).hasValue(1);
+        assertThat(cache.missCount() - misses).isEqualTo(1);
+        assertThat(cache.hitCount() - hits).isZero();
+    }
+
+    @Test
+    void laterProbeOfCachedNameCountsHit() throws UnknownHostException {
+        String host = UUID.randomUUID() + ".example";
+        cache.lookup(host, IPV4, delegate, true);
+        long hits = cache.hitCount();
+        long misses = cache.missCount();
+
+        cache.lookup(host, IPV4, delegate, true);
+
+        assertThat(resolutions).hasValue(1);
+        assertThat(cache.hitCount() - hits).isEqualTo(1);
+        assertThat(cache.missCount() - misses).isZero();
+    }
+}
@@ -0,0 +1,50 @@
+package com.jadeproject.backend.probe;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HandshakeSamplerTest {
+
+    private static final Executor SAME_THREAD = Runnable::run;
+
+    @Test
+    void samplesEachHostOncePerWindowAndHandsItToTheNextCheck() throws Exception {
+        HandshakeSampler sampler = new HandshakeSampler(300, 1000);
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            int port = server.getLocalPort();
+
+            sampler.sampleInBackgroundIfDue("localhost", InetAddress.getLoopbackAddress(), port, false, SAME_THREAD);
+            long[] sample = sampler.takeSample("localhost", port);
+            assertThat(sample).isNotNull();
+            assertThat(sample[1]).isEqualTo(-1); //Sem TLS
+            assertThat(sampler.takeSample("localhost", port)).isNull(); //Cada amostra vai numa verificação só
+
+            //Mesma janela: não amostra de novo
+            sampler.sampleInBackgroundIfDue("localhost", InetAddress.getLoopbackAddress(), port, false, SAME_THREAD);
+            assertThat(sampler.takeSample("localhost", port)).isNull();
+        }
+    }
+
+    @Test
+    void sweepDropsHostsPastTheWindow() throws Exception {
+        HandshakeSampler sampler = new HandshakeSampler(1, 1000);
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+            sampler.sampleInBackgroundIfDue("localhost", InetAddress.getLoopbackAddress(), port, false, SAME_THREAD);
+        }
+
+        sampler.evictStale();
+        assertThat(sampler.size()).isEqualTo(1); //Ainda dentro da janela
+
+        Thread.sleep(1_100);
+        sampler.evictStale();
+        assertThat(sampler.size()).isZero();
+        assertThat(sampler.takeSample("localhost", port)).isNull(); //A amostra pendente sai junto
+    }
+}
@@ -0,0 +1,61 @@
+package com.jadeproject.backend.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HostBulkheadTest {
+
+    @Test
+    void sameAuthoritySharesLane() {
+        assertThat(HostBulkhead.authorityOf("https://Example.com/a")).isEqualTo("example.com:443");
+        assertThat(HostBulkhead.authorityOf("https://example.com:443/b")).isEqualTo("example.com:443");
+        assertThat(HostBulkhead.authorityOf("http://example.com/")).isEqualTo("example.com:80");
+    }
+
+    @Test
+    void rejectsWhenHostQueueIsFull() throws InterruptedException {
+        //Uma vaga e fila de um: com a vaga ocupada e alguém esperando, a próxima verificação do host é rejeitada
+        HostBulkhead bulkhead = new HostBulkhead(1, 1, 600_000, new SimpleMeterRegistry());
+        HostBulkhead.Permit first = bulkhead.acquire("https://a.com");
+
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try (HostBulkhead.Permit permit = bulkhead.acquire("https://a.com")) {
+                assertThat(permit).isNotNull();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        assertThat(bulkhead.acquire("https://a.com")).isNull();
+        try (HostBulkhead.Permit other = bulkhead.acquire("https://b.com")) {
+            assertThat(other).isNotNull(); //Outro host não é afetado
+        }
+
+        first.close();
+        waiter.join(5_000);
+        assertThat(waiter.isAlive()).isFalse();
+    }
+
+    @Test
+    void evictsOnlyIdleLanes() throws InterruptedException {
+        HostBulkhead bulkhead = new HostBulkhead(2, 10, 0, new SimpleMeterRegistry());
+
+        bulkhead.acquire("https://idle.com").close();
+        HostBulkhead.Permit busy = bulkhead.acquire("https://busy.com");
+        assertThat(bulkhead.laneCount()).isEqualTo(2);
+
+        Thread.sleep(1);
+        bulkhead.evictIdleLanes();
+        assertThat(bulkhead.laneCount()).isEqualTo(1); //A pista com vaga ocupada fica
+
+        busy.close();
+        Thread.sleep(1);
+        bulkhead.evictIdleLanes();
+        assertThat(bulkhead.laneCount()).isZero();
+    }
+}
@@ -0,0 +1,142 @@
+package com.jadeproject.backend.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProbeCoalescerTest {
+
+    private static final String URL = "https://example.com/health";
+    private static final ProbeResult OK = new ProbeResult(200, 50, null, ProbeTimings.NONE);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void followersShareTheLeaderCall() throws InterruptedException {
+        ProbeCoalescer coalescer = new ProbeCoalescer(0, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ConcurrentLinkedQueue<ProbeResult> results = new ConcurrentLinkedQueue<>();
+        ProbeCoalescer.ProbeTask task = () -> {
+            calls.incrementAndGet();
+            leaderStarted.countDown();
+            release.await();
+            return OK;
+        };
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(coalescer, task, results));
+        leaderStarted.await();
+        for (int i = 0; i < 5; i++) {
+            threads.add(start(coalescer, task, results));
+        }
+        //Espera os 5 seguidores entrarem (cada um conta no coalesced) antes de liberar a líder
+        while (meterRegistry.counter("jade.probe.coalesced").count() < 5) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5_000);
+        }
+
+        assertThat(calls).hasValue(1);
+        assertThat(results).hasSize(6).containsOnly(OK);
+    }
+
+    @Test
+    void failedLeaderIsNotReused() throws InterruptedException {
+        ProbeCoalescer coalescer = new ProbeCoalescer(60_000, meterRegistry);
+
+        assertThatThrownBy(() -> coalescer.execute("HEAD", URL, () -> {
+            throw new IllegalStateException("falhou");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(coalescer.size()).isZero();
+        assertThat(coalescer.execute("HEAD", URL, () -> OK)).isEqualTo(OK);
+    }
+
+    @Test
+    void skippedResultIsNotReused() throws InterruptedException {
+        ProbeCoalescer coalescer = new ProbeCoalescer(60_000, meterRegistry);
+
+        assertThat(coalescer.execute("HEAD", URL, () -> null)).isNull();
+
+        assertThat(coalescer.size()).isZero();
+        assertThat(coalescer.execute("HEAD", URL, () -> OK)).isEqualTo(OK);
+    }
+
+    @Test
+    void resultIsReusedInsideTheWindowOnly() throws InterruptedException {
+        ProbeCoalescer coalescer = new ProbeCoalescer(50, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+        ProbeCoalescer.ProbeTask task = () -> {
+            calls.incrementAndGet();
+            return OK;
+        };
+
+        coalescer.execute("HEAD", URL, task);
+        coalescer.execute("HEAD", URL, task);
+        assertThat(calls).hasValue(1); //Dentro da janela: mesmo resultado
+        coalescer.execute("GET", URL, task);
+        assertThat(calls).hasValue(2); //Outro método é outro alvo
+
+        Thread.sleep(60);
+        coalescer.execute("HEAD", URL, task);
+        assertThat(calls).hasValue(3); //Janela passou: requisição nova
+    }
+
+    @Test
+    void sweepRemovesEntriesPastTheWindow() throws InterruptedException {
+        ProbeCoalescer coalescer = new ProbeCoalescer(50, meterRegistry);
+        coalescer.execute("HEAD", URL, () -> OK);
+        coalescer.execute("HEAD", "https://other.com", () -> OK);
+
+        coalescer.evictStale();
+        assertThat(coalescer.size()).isEqualTo(2); //Ainda dentro da janela
+
+        Thread.sleep(60);
+        coalescer.evictStale();
+        assertThat(coalescer.size()).isZero();
+    }
+
+    @Test
+    void sweepKeepsProbesInFlight() throws InterruptedException {
+        ProbeCoalescer coalescer = new ProbeCoalescer(0, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = start(coalescer, () -> {
+            started.countDown();
+            release.await();
+            return OK;
+        }, new ConcurrentLinkedQueue<>());
+        started.await();
+
+        coalescer.evictStale();
+        assertThat(coalescer.size()).isEqualTo(1);
+
+        release.countDown();
+        leader.join(5_000);
+        coalescer.evictStale();
+        assertThat(coalescer.size()).isZero();
+    }
+
+    private static Thread start(ProbeCoalescer coalescer, ProbeCoalescer.ProbeTask task,
+                                ConcurrentLinkedQueue<ProbeResult> results) {
+        return Thread.ofVirtual().start(() -> {
+            try {
+                results.add(coalescer.execute("HEAD", URL, task));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+}
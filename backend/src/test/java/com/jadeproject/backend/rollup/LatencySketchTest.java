@@ -0,0 +1,110 @@
+package com.jadeproject.backend.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencySketchTest {
+
+    @Test
+    void emptySketchHasNoQuantile() {
+        LatencySketch sketch = new LatencySketch();
+
+        assertThat(sketch.count()).isZero();
+        assertThat(sketch.quantile(0.5)).isNull();
+        assertThat(LatencySketch.fromBytes(sketch.toBytes()).count()).isZero();
+        assertThat(LatencySketch.fromBytes(null).count()).isZero();
+    }
+
+    @Test
+    void quantilesStayWithinRelativeError() {
+        //Distribuição "cauda longa" parecida com latência real: maioria perto de 80ms, alguns passando de 2s
+        Random random = new Random(7);
+        int[] values = new int[20_000];
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 20 + (int) Math.round(Math.exp(4 + random.nextGaussian()));
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[]{0.5, 0.9, 0.95, 0.99, 1.0}) {
+            int exact = values[(int) Math.ceil(q * values.length) - 1];
+            //~2% do balde + 1ms de arredondamento
+            assertThat(sketch.quantile(q)).isCloseTo(exact, within((int) Math.ceil(exact * 0.02) + 1));
+        }
+    }
+
+    @Test
+    void zeroLatencyHasItsOwnBucket() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(500);
+
+        assertThat(sketch.quantile(0.5)).isZero();
+        assertThat(sketch.quantile(1.0)).isCloseTo(500, within(11));
+    }
+
+    @Test
+    void bytesRoundTripKeepsEveryQuantile() {
+        LatencySketch sketch = new LatencySketch();
+        for (int ms = 0; ms <= 60_000; ms += 7) {
+            sketch.add(ms);
+        }
+
+        LatencySketch copy = LatencySketch.fromBytes(sketch.toBytes());
+
+        assertThat(copy.count()).isEqualTo(sketch.count());
+        for (double q = 0.01; q <= 1.0; q += 0.01) {
+            assertThat(copy.quantile(q)).isEqualTo(sketch.quantile(q));
+        }
+        assertThat(copy.toBytes()).isEqualTo(sketch.toBytes());
+    }
+
+    @Test
+    void similarLatenciesSerializeToFewBytes() {
+        //Um minuto típico: poucas verificações com latências parecidas
+        LatencySketch sketch = new LatencySketch();
+        for (int ms : new int[]{120, 121, 125, 118, 240, 119}) {
+            sketch.add(ms);
+        }
+
+        assertThat(sketch.toBytes().length).isLessThan(16);
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        byte[] bytes = new LatencySketch().toBytes();
+        bytes[0] = 99;
+
+        assertThatThrownBy(() -> LatencySketch.fromBytes(bytes))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mergeEqualsAddingEverythingToOneSketch() {
+        LatencySketch first = new LatencySketch();
+        LatencySketch second = new LatencySketch();
+        LatencySketch all = new LatencySketch();
+        for (int ms = 1; ms <= 3000; ms++) {
+            (ms % 3 == 0 ? first : second).add(ms);
+            all.add(ms);
+        }
+
+        //O sketch maior recebendo o menor e o contrário (o array de baldes precisa crescer)
+        LatencySketch small = new LatencySketch();
+        small.add(5);
+        small.merge(first);
+        small.merge(second);
+        all.add(5);
+
+        assertThat(small.count()).isEqualTo(all.count());
+        assertThat(small.toBytes()).isEqualTo(all.toBytes());
+    }
+}
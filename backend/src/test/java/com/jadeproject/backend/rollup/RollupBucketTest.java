@@ -0,0 +1,112 @@
+package com.jadeproject.backend.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupBucketTest {
+
+    private static final Instant HOUR = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Test
+    void checksWithoutResponseDoNotCountAsLatency() {
+        RollupBucket bucket = new RollupBucket(1, HOUR);
+        bucket.addCheck(200, 100, true);
+        bucket.addCheck(500, 300, false);
+        bucket.addCheck(0, 3000, false); //Timeout: sem resposta HTTP
+        bucket.addCheck(null, null, false);
+
+        assertThat(bucket.getCheckCount()).isEqualTo(4);
+        assertThat(bucket.getSuccessCount()).isEqualTo(1);
+        assertThat(bucket.getLatencyCount()).isEqualTo(2);
+        assertThat(bucket.getLatencyMin()).isEqualTo(100);
+        assertThat(bucket.getLatencyMax()).isEqualTo(300);
+        assertThat(bucket.getLatencyAvg()).isEqualTo(200.0);
+    }
+
+    @Test
+    void mergingMinutesEqualsAddingAllChecksToTheHour() {
+        RollupBucket direct = new RollupBucket(1, HOUR);
+        RollupBucket merged = new RollupBucket(1, HOUR);
+        for (int minute = 0; minute < 60; minute++) {
+            RollupBucket minuteBucket = new RollupBucket(1, HOUR.plusSeconds(minute * 60L));
+            for (int check = 0; check < 4; check++) {
+                int latency = 50 + minute * 10 + check;
+                boolean success = (minute + check) % 7 != 0;
+                int status = check == 3 && minute % 10 == 0 ? 0 : (success ? 200 : 503);
+                minuteBucket.addCheck(status, latency, success);
+                direct.addCheck(status, latency, success);
+            }
+            merged.merge(minuteBucket);
+        }
+
+        assertThat(merged.getCheckCount()).isEqualTo(direct.getCheckCount());
+        assertThat(merged.getSuccessCount()).isEqualTo(direct.getSuccessCount());
+        assertThat(merged.getLatencyCount()).isEqualTo(direct.getLatencyCount());
+        assertThat(merged.getLatencySum()).isEqualTo(direct.getLatencySum());
+        assertThat(merged.getLatencyMin()).isEqualTo(direct.getLatencyMin());
+        assertThat(merged.getLatencyMax()).isEqualTo(direct.getLatencyMax());
+        assertThat(merged.latencyQuantile(0.95)).isEqualTo(direct.latencyQuantile(0.95));
+        assertThat(merged.getSketch().toBytes()).isEqualTo(direct.getSketch().toBytes());
+    }
+
+    @Test
+    void mergingEmptyBucketsKeepsLatencyNull() {
+        RollupBucket hour = new RollupBucket(1, HOUR);
+        RollupBucket timeoutsOnly = new RollupBucket(1, HOUR);
+        timeoutsOnly.addCheck(0, 3000, false);
+
+        hour.merge(new RollupBucket(1, HOUR));
+        hour.merge(timeoutsOnly);
+
+        assertThat(hour.getCheckCount()).isEqualTo(1);
+        assertThat(hour.getLatencyMin()).isNull();
+        assertThat(hour.getLatencyMax()).isNull();
+        assertThat(hour.getLatencyAvg()).isNull();
+        assertThat(hour.latencyQuantile(0.5)).isNull();
+    }
+
+    @Test
+    void mergeIntoEmptyBucketTakesOtherMinAndMax() {
+        RollupBucket day = new RollupBucket(1, HOUR);
+        RollupBucket hour = new RollupBucket(1, HOUR);
+        hour.addCheck(200, 80, true);
+        hour.addCheck(200, 90, true);
+
+        day.merge(hour);
+
+        assertThat(day.getLatencyMin()).isEqualTo(80);
+        assertThat(day.getLatencyMax()).isEqualTo(90);
+    }
+
+    @Test
+    void quantileIsClampedToRealMinAndMax() {
+        //Uma latência só: o meio do balde do sketch pode passar do valor real, o percentil não
+        RollupBucket bucket = new RollupBucket(1, HOUR);
+        bucket.addCheck(200, 1000, true);
+
+        assertThat(bucket.latencyQuantile(0.5)).isEqualTo(1000);
+        assertThat(bucket.latencyQuantile(0.99)).isEqualTo(1000);
+    }
+
+    @Test
+    void bucketReadFromDatabaseKeepsMerging() {
+        RollupBucket original = new RollupBucket(1, HOUR);
+        original.addCheck(200, 120, true);
+        original.addCheck(503, 450, false);
+
+        RollupBucket restored = RollupBucket.of(1, HOUR, original.getCheckCount(), original.getSuccessCount(),
+                original.getLatencyCount(), original.getLatencyMin(), original.getLatencyMax(),
+                original.getLatencySum(), original.getSketch().toBytes());
+        RollupBucket more = new RollupBucket(1, HOUR);
+        more.addCheck(200, 60, true);
+        restored.merge(more);
+
+        assertThat(restored.getCheckCount()).isEqualTo(3);
+        assertThat(restored.getLatencyMin()).isEqualTo(60);
+        assertThat(restored.getLatencyMax()).isEqualTo(450);
+        assertThat(restored.getSketch().count()).isEqualTo(3);
+    }
+}
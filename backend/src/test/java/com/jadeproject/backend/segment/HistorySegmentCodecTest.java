@@ -0,0 +1,111 @@
+package com.jadeproject.backend.segment;
+
+import com.jadeproject.backend.model.Monitor;
+import com.jadeproject.backend.model.MonitorHistory;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistorySegmentCodecTest {
+
+    private static final OffsetDateTime DAY = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final Monitor monitor = monitor(7L);
+
+    @Test
+    void roundTripKeepsEveryColumn() {
+        List<MonitorHistory> rows = new ArrayList<>();
+        rows.add(row(1000, DAY.plusSeconds(3), 200, 120, true, 4, 30, 45, 110));
+        rows.add(row(1003, DAY.plusSeconds(63), 200, 118, true, null, null, null, 101));
+        //Sem resposta: status 0, fases nulas
+        rows.add(row(1004, DAY.plusSeconds(123), 0, 3000, false, 2, null, null, null));
+        //Tudo nulo (linhas antigas sem as colunas novas)
+        rows.add(row(1010, DAY.plusSeconds(183), null, null, null, null, null, null, null));
+        //Microssegundos e um id menor que o anterior (delta negativo)
+        rows.add(row(990, DAY.plusSeconds(243).plusNanos(123_456_000), 503, 0, false, 0, 0, 0, 0));
+
+        List<MonitorHistory> decoded = HistorySegmentCodec.decode(HistorySegmentCodec.encode(rows), monitor);
+
+        assertThat(decoded).hasSameSizeAs(rows);
+        for (int i = 0; i < rows.size(); i++) {
+            assertSameRow(decoded.get(i), rows.get(i));
+            assertThat(decoded.get(i).getMonitor()).isSameAs(monitor);
+        }
+    }
+
+    @Test
+    void emptySegmentRoundTrips() {
+        assertThat(HistorySegmentCodec.decode(HistorySegmentCodec.encode(List.of()), monitor)).isEmpty();
+    }
+
+    @Test
+    void regularDayCompressesWell() {
+        //Um dia de um monitor de 60s saudável: 1440 linhas
+        Random random = new Random(3);
+        List<MonitorHistory> rows = new ArrayList<>();
+        for (int i = 0; i < 1440; i++) {
+            rows.add(row(50_000L + i * 3L, DAY.plusSeconds(i * 60L + random.nextInt(2)), 200,
+                    100 + random.nextInt(20), true, null, null, null, 90 + random.nextInt(20)));
+        }
+
+        byte[] data = HistorySegmentCodec.encode(rows);
+
+        assertThat(data.length).isLessThan(rows.size() * 4);
+        List<MonitorHistory> decoded = HistorySegmentCodec.decode(data, monitor);
+        for (int i = 0; i < rows.size(); i++) {
+            assertSameRow(decoded.get(i), rows.get(i));
+        }
+    }
+
+    @Test
+    void corruptedDataIsRejected() {
+        byte[] data = HistorySegmentCodec.encode(List.of(row(1, DAY, 200, 10, true, null, null, null, null)));
+
+        assertThatThrownBy(() -> HistorySegmentCodec.decode(Arrays.copyOf(data, data.length / 2), monitor))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HistorySegmentCodec.decode(new byte[]{1, 2, 3, 4}, monitor))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void assertSameRow(MonitorHistory actual, MonitorHistory expected) {
+        assertThat(actual.getId()).isEqualTo(expected.getId());
+        assertThat(actual.getCheckedAt()).isEqualTo(expected.getCheckedAt());
+        assertThat(actual.getStatusCode()).isEqualTo(expected.getStatusCode());
+        assertThat(actual.getLatency()).isEqualTo(expected.getLatency());
+        assertThat(actual.getIsSuccessful()).isEqualTo(expected.getIsSuccessful());
+        assertThat(actual.getDnsMs()).isEqualTo(expected.getDnsMs());
+        assertThat(actual.getConnectMs()).isEqualTo(expected.getConnectMs());
+        assertThat(actual.getTlsMs()).isEqualTo(expected.getTlsMs());
+        assertThat(actual.getRequestMs()).isEqualTo(expected.getRequestMs());
+    }
+
+    private MonitorHistory row(long id, OffsetDateTime checkedAt, Integer statusCode, Integer latency,
+                               Boolean successful, Integer dnsMs, Integer connectMs, Integer tlsMs, Integer requestMs) {
+        MonitorHistory row = new MonitorHistory();
+        row.setId(id);
+        row.setMonitor(monitor);
+        row.setCheckedAt(checkedAt);
+        row.setStatusCode(statusCode);
+        row.setLatency(latency);
+        row.setIsSuccessful(successful);
+        row.setDnsMs(dnsMs);
+        row.setConnectMs(connectMs);
+        row.setTlsMs(tlsMs);
+        row.setRequestMs(requestMs);
+        return row;
+    }
+
+    private static Monitor monitor(Long id) {
+        Monitor monitor = new Monitor();
+        monitor.setId(id);
+        return monitor;
+    }
+}
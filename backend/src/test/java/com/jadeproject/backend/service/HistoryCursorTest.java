@@ -0,0 +1,84 @@
+package com.jadeproject.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTest {
+
+    private static final OffsetDateTime CHECKED_AT =
+            OffsetDateTime.of(2025, 3, 10, 14, 30, 15, 123_456_000, ZoneOffset.UTC);
+
+    @Test
+    void roundTripKeepsMicrosecondsAndId() {
+        HistoryCursor cursor = new HistoryCursor(CHECKED_AT, 987_654_321L);
+
+        HistoryCursor decoded = HistoryCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+    }
+
+    @Test
+    void otherOffsetsAreNormalizedToUtc() {
+        OffsetDateTime saoPaulo = CHECKED_AT.withOffsetSameInstant(ZoneOffset.ofHours(-3));
+
+        HistoryCursor decoded = HistoryCursor.decode(new HistoryCursor(saoPaulo, 1).encode());
+
+        assertThat(decoded.checkedAt()).isEqualTo(CHECKED_AT);
+        assertThat(decoded.checkedAt().toInstant()).isEqualTo(saoPaulo.toInstant());
+    }
+
+    @Test
+    void instantsBeforeEpochRoundTrip() {
+        OffsetDateTime old = OffsetDateTime.of(1969, 12, 31, 23, 59, 59, 500_000_000, ZoneOffset.UTC);
+
+        assertThat(HistoryCursor.decode(new HistoryCursor(old, 5).encode()).checkedAt()).isEqualTo(old);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new HistoryCursor(CHECKED_AT, Long.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : new String[]{
+                "",
+                "não é base64!",
+                encode("sem-separador"),
+                encode("abc:1"),
+                encode("1:abc"),
+                encode("1:"),
+                encode(":1"),
+                encode("1:2:3"),
+                encode("99999999999999999999:1")}) {
+            assertThatThrownBy(() -> HistoryCursor.decode(cursor))
+                    .as("cursor '%s'", cursor)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> HistoryCursor.decode(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void isAfterFollowsDescendingOrder() {
+        HistoryCursor cursor = new HistoryCursor(CHECKED_AT, 100);
+
+        assertThat(cursor.isAfter(CHECKED_AT.minusSeconds(1), 500)).isTrue();
+        assertThat(cursor.isAfter(CHECKED_AT, 99)).isTrue();
+        assertThat(cursor.isAfter(CHECKED_AT, 100)).isFalse();
+        assertThat(cursor.isAfter(CHECKED_AT, 101)).isFalse();
+        assertThat(cursor.isAfter(CHECKED_AT.plusNanos(1000), 1)).isFalse();
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,99 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.model.Monitor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Todos os horários ficam no passado: take() devolve na hora, sem o teste precisar esperar
+class MonitorDueQueueTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    private static Monitor monitor(long id, String name) {
+        Monitor monitor = new Monitor();
+        monitor.setId(id);
+        monitor.setName(name);
+        return monitor;
+    }
+
+    @Test
+    void takeReturnsChecksInDueOrder() throws InterruptedException {
+        MonitorDueQueue queue = new MonitorDueQueue();
+        queue.schedule(monitor(1, "a"), BASE.plusSeconds(30));
+        queue.schedule(monitor(2, "b"), BASE.plusSeconds(10));
+        queue.schedule(monitor(3, "c"), BASE.plusSeconds(20));
+
+        assertThat(queue.take().getMonitorId()).isEqualTo(2L);
+        assertThat(queue.take().getMonitorId()).isEqualTo(3L);
+        assertThat(queue.take().getMonitorId()).isEqualTo(1L);
+    }
+
+    @Test
+    void scheduleReplacesPreviousEntry() throws InterruptedException {
+        MonitorDueQueue queue = new MonitorDueQueue();
+        queue.schedule(monitor(1, "a"), BASE);
+        queue.schedule(monitor(1, "a"), BASE.plusSeconds(60));
+        queue.schedule(monitor(2, "b"), BASE.plusSeconds(120));
+
+        //A entrada antiga do monitor 1 continua na DelayQueue, mas é descartada
+        MonitorDueQueue.ScheduledCheck first = queue.take();
+        assertThat(first.getMonitorId()).isEqualTo(1L);
+        assertThat(first.getDueAt()).isEqualTo(BASE.plusSeconds(60));
+        assertThat(queue.take().getMonitorId()).isEqualTo(2L);
+        assertThat(queue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rescheduleIgnoresStaleEntry() {
+        MonitorDueQueue queue = new MonitorDueQueue();
+        queue.schedule(monitor(1, "a"), BASE);
+        MonitorDueQueue.ScheduledCheck running = queue.get(1L);
+
+        //Monitor alterado enquanto a verificação rodava: a agenda nova vence
+        queue.schedule(monitor(1, "a"), BASE.plusSeconds(300));
+        queue.reschedule(running, BASE.plusSeconds(60));
+
+        assertThat(queue.get(1L).getDueAt()).isEqualTo(BASE.plusSeconds(300));
+    }
+
+    @Test
+    void rescheduleReplacesCurrentEntry() {
+        MonitorDueQueue queue = new MonitorDueQueue();
+        queue.schedule(monitor(1, "a"), BASE);
+        MonitorDueQueue.ScheduledCheck running = queue.get(1L);
+
+        queue.reschedule(running, BASE.plusSeconds(60));
+
+        assertThat(queue.get(1L)).isNotSameAs(running);
+        assertThat(queue.get(1L).getDueAt()).isEqualTo(BASE.plusSeconds(60));
+    }
+
+    @Test
+    void removedMonitorIsSkippedAndNotRescheduled() throws InterruptedException {
+        MonitorDueQueue queue = new MonitorDueQueue();
+        queue.schedule(monitor(1, "a"), BASE);
+        queue.schedule(monitor(2, "b"), BASE.plusSeconds(10));
+        MonitorDueQueue.ScheduledCheck removed = queue.get(1L);
+
+        queue.remove(1L);
+        queue.reschedule(removed, BASE.plusSeconds(60));
+
+        assertThat(queue.get(1L)).isNull();
+        assertThat(queue.take().getMonitorId()).isEqualTo(2L);
+        assertThat(queue.size()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshSwapsMonitorButKeepsDueTime() {
+        MonitorDueQueue queue = new MonitorDueQueue();
+        queue.schedule(monitor(1, "old"), BASE);
+
+        assertThat(queue.refresh(monitor(1, "new"))).isTrue();
+        assertThat(queue.get(1L).getMonitor().getName()).isEqualTo("new");
+        assertThat(queue.get(1L).getDueAt()).isEqualTo(BASE);
+        assertThat(queue.refresh(monitor(2, "unknown"))).isFalse();
+    }
+}
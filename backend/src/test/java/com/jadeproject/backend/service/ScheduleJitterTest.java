@@ -0,0 +1,96 @@
+package com.jadeproject.backend.service;
+
+import com.jadeproject.backend.model.Monitor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduleJitterTest {
+
+    private static final Instant BASE = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Test
+    void phaseStaysInsideWindowAndIsStable() {
+        for (long id = 1; id <= 1000; id++) {
+            long phase = ScheduleJitter.phaseMillis(id, 60_000);
+            assertThat(phase).isBetween(0L, 59_999L);
+            assertThat(ScheduleJitter.phaseMillis(id, 60_000)).isEqualTo(phase);
+        }
+    }
+
+    @Test
+    void consecutiveIdsAreSpreadAcrossWindow() {
+        //100 IDs seguidos numa janela de 100 s: cada fatia de 10 s recebe uma parte parecida
+        int[] slices = new int[10];
+        for (long id = 1; id <= 100; id++) {
+            slices[(int) (ScheduleJitter.phaseMillis(id, 100_000) / 10_000)]++;
+        }
+        for (int count : slices) {
+            assertThat(count).isBetween(5, 15);
+        }
+    }
+
+    @Test
+    void nextSlotIsOnTheMonitorGrid() {
+        long id = 42;
+        int interval = 300;
+        long phase = ScheduleJitter.phaseMillis(id, interval * 1000L);
+
+        Instant slot = ScheduleJitter.nextSlotAfter(id, interval, BASE);
+
+        assertThat(slot).isAfter(BASE);
+        assertThat(slot).isBeforeOrEqualTo(BASE.plusSeconds(interval));
+        assertThat(Math.floorMod(slot.toEpochMilli() - phase, interval * 1000L)).isZero();
+    }
+
+    @Test
+    void nextSlotIsStrictlyAfterASlot() {
+        Instant slot = ScheduleJitter.nextSlotAfter(7, 60, BASE);
+
+        //Exatamente em cima de um ponto da grade: o próximo é um intervalo inteiro depois
+        assertThat(ScheduleJitter.nextSlotAfter(7, 60, slot)).isEqualTo(slot.plusSeconds(60));
+        assertThat(ScheduleJitter.nextSlotAfter(7, 60, slot.minusMillis(1))).isEqualTo(slot);
+    }
+
+    @Test
+    void firstDueAtKeepsGridWhenNotLate() {
+        Monitor monitor = monitor(9, 300);
+        monitor.setLastChecked(BASE.minusSeconds(10).atOffset(ZoneOffset.UTC));
+
+        Instant due = ScheduleJitter.firstDueAt(monitor, BASE);
+
+        assertThat(due).isEqualTo(ScheduleJitter.nextSlotAfter(9, 300, BASE.minusSeconds(10)));
+    }
+
+    @Test
+    void firstDueAtSpreadsLateMonitorsInsideCatchUpWindow() {
+        Monitor neverChecked = monitor(9, 86_400);
+        Monitor late = monitor(10, 86_400);
+        late.setLastChecked(BASE.minusSeconds(3 * 86_400).atOffset(ZoneOffset.UTC));
+
+        assertThat(ScheduleJitter.firstDueAt(neverChecked, BASE)).isBetween(BASE, BASE.plusSeconds(60));
+        assertThat(ScheduleJitter.firstDueAt(late, BASE)).isBetween(BASE, BASE.plusSeconds(60));
+    }
+
+    @Test
+    void nextDueAfterRunSkipsMissedSlots() {
+        Monitor monitor = monitor(5, 60);
+        Instant dueAt = ScheduleJitter.nextSlotAfter(5, 60, BASE);
+
+        //Terminou a tempo: próximo ponto da grade
+        assertThat(ScheduleJitter.nextDueAfterRun(monitor, dueAt, dueAt.plusSeconds(5))).isEqualTo(dueAt.plusSeconds(60));
+        //Demorou mais de dois intervalos: pula os pontos perdidos
+        Instant now = dueAt.plusSeconds(150);
+        assertThat(ScheduleJitter.nextDueAfterRun(monitor, dueAt, now)).isEqualTo(dueAt.plusSeconds(180));
+    }
+
+    private static Monitor monitor(long id, int intervalSeconds) {
+        Monitor monitor = new Monitor();
+        monitor.setId(id);
+        monitor.setIntervalSeconds(intervalSeconds);
+        return monitor;
+    }
+}